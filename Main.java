@@ -1,5 +1,5 @@
 import javax.swing.*;
-import engine.AlgorithmType;
+import engine.PathfinderRegistry;
 import ui.GameUI;
 import util.Difficulty;
 
@@ -41,17 +41,17 @@ public class Main {
             if (difficulty == null) difficulty = Difficulty.MEDIUM;
 
             // ===== ALGORITHM SELECTION =====
-            AlgorithmType algo = (AlgorithmType) JOptionPane.showInputDialog(
+            String algo = (String) JOptionPane.showInputDialog(
                     null,
                     "Select AI Algorithm:",
                     "Game Setup",
                     JOptionPane.QUESTION_MESSAGE,
                     null,
-                    AlgorithmType.values(),
-                    AlgorithmType.BFS
+                    PathfinderRegistry.names().toArray(new String[0]),
+                    "BFS"
             );
 
-            if (algo == null) algo = AlgorithmType.BFS;
+            if (algo == null) algo = "BFS";
 
             // ===== COLOR BLIND MODE =====
             int cb = JOptionPane.showConfirmDialog(
@@ -0,0 +1,191 @@
+package analytics;
+
+import engine.AIEngine;
+import engine.AlgorithmSelector;
+import engine.PathfinderRegistry;
+import java.util.*;
+import java.util.concurrent.*;
+import model.Maze;
+import model.Player;
+import util.Difficulty;
+
+// Headless CPU-vs-CPU games, many at once, to compare algorithms.
+//
+// Usage: java analytics.BatchSimulator [games] [seatA] [seatsB] [threads] [seed]
+//   games   games per difficulty and matchup (default 1000)
+//   seatA   the "human" seat: SCRIPTED or an algorithm name (default SCRIPTED)
+//   seatsB  comma separated algorithm names for the CPU seat (default BFS,ASTAR,GREEDY,DFS)
+//   threads worker threads (default: one per core)
+//   seed    base seed; game i plays on the maze built from seed + i (default 1)
+//
+// Games follow GameUI's rules: seat A starts top-left and moves first,
+// spending one of Difficulty.getMoveLimit(MOVE_LIMIT) moves, then seat B
+// answers from bottom-right. Every matchup plays the same seeded mazes.
+public class BatchSimulator {
+
+    public static final int MOVE_LIMIT = 200;
+    public static final String SCRIPTED = "SCRIPTED";
+
+    public static void main(String[] args) throws Exception {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        String seatA = args.length > 1 ? args[1].toUpperCase() : SCRIPTED;
+        String seatsB = args.length > 2 ? args[2].toUpperCase() : "BFS,ASTAR,GREEDY,DFS";
+        int threads = args.length > 3 ? Integer.parseInt(args[3])
+                                      : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 1;
+        if (!seatA.equals(SCRIPTED) && PathfinderRegistry.get(seatA) == null) {
+            throw new IllegalArgumentException("Unknown algorithm " + seatA
+                    + ", expected " + SCRIPTED + " or one of " + PathfinderRegistry.names());
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (Difficulty difficulty : Difficulty.values()) {
+                for (String b : seatsB.split(",")) {
+                    String seatB = b.trim();
+                    if (PathfinderRegistry.get(seatB) == null) {
+                        throw new IllegalArgumentException("Unknown algorithm " + seatB
+                                + ", expected one of " + PathfinderRegistry.names());
+                    }
+                    run(pool, games, difficulty, seatA, seatB, seed);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        if (seatA.equals("AUTO") || seatsB.contains("AUTO")) {
+            System.out.print("AUTO routing\n" + AlgorithmSelector.shared().report());
+        }
+    }
+
+    // ================= Matchup =================
+    private static void run(ExecutorService pool, int games, Difficulty difficulty,
+                            String seatA, String seatB, long seed) throws Exception {
+
+        List<Future<int[]>> results = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int g = 0; g < games; g++) {
+            long gameSeed = seed + g;
+            results.add(pool.submit(() -> play(difficulty, seatA, seatB, gameSeed)));
+        }
+
+        int[] scoresA = new int[games];
+        int[] scoresB = new int[games];
+        int winsA = 0, winsB = 0, draws = 0;
+        for (int g = 0; g < games; g++) {
+            int[] r = results.get(g).get();
+            scoresA[g] = r[0];
+            scoresB[g] = r[1];
+            if (r[0] > r[1]) winsA++;
+            else if (r[1] > r[0]) winsB++;
+            else draws++;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%s  %s vs %s  %d games  %.1f games/s%n",
+                difficulty, seatA, seatB, games, games / seconds);
+        System.out.printf("  win A %.1f%%  win B %.1f%%  draw %.1f%%%n",
+                100.0 * winsA / games, 100.0 * winsB / games, 100.0 * draws / games);
+        System.out.println("  A " + distribution(scoresA));
+        System.out.println("  B " + distribution(scoresB));
+    }
+
+    private static String distribution(int[] scores) {
+        int[] s = scores.clone();
+        Arrays.sort(s);
+        long sum = 0;
+        for (int v : s) sum += v;
+        return String.format("mean %.0f  min %d  p10 %d  median %d  p90 %d  max %d",
+                (double) sum / s.length, s[0], percentile(s, 10),
+                percentile(s, 50), percentile(s, 90), s[s.length - 1]);
+    }
+
+    private static int percentile(int[] sorted, int p) {
+        return sorted[Math.min(sorted.length - 1, sorted.length * p / 100)];
+    }
+
+    // ================= One Game =================
+    // Returns {score A, score B}
+    static int[] play(Difficulty difficulty, String seatA, String seatB, long seed) {
+        int size = difficulty.getMazeSize();
+        Maze maze = new Maze(size, difficulty, seed);
+        Player a = new Player(0, 0);
+        Player b = new Player(size - 1, size - 1);
+
+        AIEngine engineB = new AIEngine(maze);
+        engineB.setOpponent(a);
+        AIEngine engineA = null;
+        ScriptedHuman script = null;
+        if (seatA.equals(SCRIPTED)) {
+            script = new ScriptedHuman(maze, seed);
+        } else {
+            engineA = new AIEngine(maze);
+            engineA.setOpponent(b);
+        }
+
+        try {
+            int movesRemaining = difficulty.getMoveLimit(MOVE_LIMIT);
+            while (movesRemaining > 0 && maze.anyCashLeft()) {
+                if (script != null) {
+                    script.move(a);
+                } else {
+                    engineA.move(a, seatA, movesRemaining);
+                }
+                if (maze.hasCash(a.x, a.y)) a.score += maze.collect(a.x, a.y);
+                movesRemaining--;
+                if (movesRemaining <= 0) break;
+
+                engineB.move(b, seatB, movesRemaining);
+                if (maze.hasCash(b.x, b.y)) b.score += maze.collect(b.x, b.y);
+            }
+        } finally {
+            engineB.shutdown();
+            if (engineA != null) engineA.shutdown();
+        }
+        return new int[]{a.score, b.score};
+    }
+
+    // ================= Scripted Human =================
+    // A casual player: takes an adjacent gem when there is one (the
+    // richest), otherwise wanders, preferring not to step straight back
+    static class ScriptedHuman {
+        private static final int[] DX = {-1, 1, 0, 0};
+        private static final int[] DY = {0, 0, -1, 1};
+
+        private final Maze maze;
+        private final Random random;
+        private int lastX = -1, lastY = -1;
+
+        ScriptedHuman(Maze maze, long seed) {
+            this.maze = maze;
+            this.random = new Random(seed);
+        }
+
+        void move(Player p) {
+            int bestGem = -1, bestValue = 0;
+            int[] open = new int[4];
+            int n = 0;
+            for (int d = 0; d < 4; d++) {
+                int nx = p.x + DX[d], ny = p.y + DY[d];
+                if (!maze.valid(nx, ny)) continue;
+                if (maze.hasCash(nx, ny) && maze.cashAt(nx, ny) > bestValue) {
+                    bestValue = maze.cashAt(nx, ny);
+                    bestGem = d;
+                }
+                if (nx != lastX || ny != lastY) open[n++] = d;
+            }
+
+            int d = bestGem;
+            if (d < 0 && n > 0) d = open[random.nextInt(n)];
+            if (d < 0) {
+                // Dead end: the only way out is back
+                if (lastX < 0) return;
+                d = lastX < p.x ? 0 : lastX > p.x ? 1 : lastY < p.y ? 2 : 3;
+            }
+            lastX = p.x;
+            lastY = p.y;
+            p.x += DX[d];
+            p.y += DY[d];
+        }
+    }
+}
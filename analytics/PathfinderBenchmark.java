@@ -0,0 +1,129 @@
+package analytics;
+
+import engine.AIEngine;
+import engine.AlgorithmType;
+import engine.MoveStats;
+import java.util.*;
+import model.Maze;
+import model.Player;
+import util.Difficulty;
+
+// Micro-benchmarks for the AIEngine pathfinders and selectBestCoin.
+//
+// Usage: java analytics.PathfinderBenchmark [sizes] [algorithms] [measureMs] [warmupMs]
+//   sizes      comma separated maze sizes (default 10,50,200,1000,2000)
+//   algorithms comma separated AlgorithmTypes and/or SELECT_BEST_COIN
+//              (default BFS,DFS,GREEDY,ASTAR,JPS,BIDIRECTIONAL,HPA,DNC,SELECT_BEST_COIN)
+//   measureMs  measured time per benchmark (default 1000)
+//   warmupMs   warm-up time per benchmark, not measured (default 500)
+//
+// Every size runs on all three Difficulty wall densities with seeded
+// mazes and a fixed set of seeded queries, so runs can be compared. For
+// each benchmark it prints throughput, average time per operation and
+// bytes allocated per operation (from the JVM's per-thread allocation
+// counter, where the JVM has one). Run with a fixed heap, e.g.
+// -Xms4g -Xmx4g, for the large sizes.
+public class PathfinderBenchmark {
+
+    public static final String SELECT_BEST_COIN = "SELECT_BEST_COIN";
+
+    private static final int QUERIES = 256;
+    private static final int QUERY_RADIUS = 16;    // keeps targets inside the search budget
+    private static final long SEED = 42;
+
+    // Result sink so the JIT cannot drop the work
+    private static long sink;
+
+    public static void main(String[] args) {
+        String sizes = args.length > 0 ? args[0] : "10,50,200,1000,2000";
+        String algorithms = args.length > 1 ? args[1].toUpperCase()
+                : "BFS,DFS,GREEDY,ASTAR,JPS,BIDIRECTIONAL,HPA,DNC," + SELECT_BEST_COIN;
+        long measureMs = args.length > 2 ? Long.parseLong(args[2]) : 1000;
+        long warmupMs = args.length > 3 ? Long.parseLong(args[3]) : 500;
+
+        System.out.printf("%-17s %-6s %5s %14s %12s %12s%n",
+                "benchmark", "diff", "size", "ops/s", "us/op", "B/op");
+        for (String s : sizes.split(",")) {
+            int size = Integer.parseInt(s.trim());
+            for (Difficulty difficulty : Difficulty.values()) {
+                Maze maze = new Maze(size, difficulty, SEED + size);
+                int[][] queries = queries(maze);
+                for (String name : algorithms.split(",")) {
+                    Runnable op = operation(name.trim(), maze, queries);
+                    measure(op, warmupMs);
+                    long[] r = measure(op, measureMs);
+                    report(name.trim(), difficulty, size, r);
+                }
+            }
+        }
+        if (sink == 42) System.out.println();
+    }
+
+    // ================= Operations =================
+    // Each call runs the next query, cycling through the fixed set
+    private static Runnable operation(String name, Maze maze, int[][] queries) {
+        AIEngine engine = new AIEngine(maze);
+        int[] next = {0};
+        if (name.equals(SELECT_BEST_COIN)) {
+            Player cpu = new Player(0, 0);
+            return () -> {
+                int[] q = queries[next[0]++ & (QUERIES - 1)];
+                cpu.x = q[0];
+                cpu.y = q[1];
+                sink += engine.selectBestCoin(cpu);
+            };
+        }
+        AlgorithmType type = AlgorithmType.valueOf(name);
+        return () -> {
+            int[] q = queries[next[0]++ & (QUERIES - 1)];
+            sink += engine.findPath(type, q[0], q[1], q[2], q[3]);
+        };
+    }
+
+    // Source and target pairs on open cells, targets near their source
+    private static int[][] queries(Maze maze) {
+        Random r = new Random(SEED);
+        int[][] out = new int[QUERIES][];
+        for (int k = 0; k < QUERIES; k++) {
+            int sx, sy, tx, ty;
+            do {
+                sx = r.nextInt(maze.size);
+                sy = r.nextInt(maze.size);
+            } while (!maze.valid(sx, sy));
+            do {
+                tx = clamp(sx + r.nextInt(2 * QUERY_RADIUS + 1) - QUERY_RADIUS, maze.size);
+                ty = clamp(sy + r.nextInt(2 * QUERY_RADIUS + 1) - QUERY_RADIUS, maze.size);
+            } while (!maze.valid(tx, ty));
+            out[k] = new int[]{sx, sy, tx, ty};
+        }
+        return out;
+    }
+
+    private static int clamp(int v, int size) {
+        return Math.max(0, Math.min(size - 1, v));
+    }
+
+    // ================= Measurement =================
+    // Returns {operations, elapsed nanos, allocated bytes or -1}
+    private static long[] measure(Runnable op, long millis) {
+        long bytesBefore = MoveStats.threadAllocatedBytes();
+        long start = System.nanoTime();
+        long end = start + millis * 1_000_000L;
+        long ops = 0;
+        long now;
+        do {
+            for (int k = 0; k < 64; k++) op.run();
+            ops += 64;
+            now = System.nanoTime();
+        } while (now < end);
+        long bytes = bytesBefore < 0 ? -1 : MoveStats.threadAllocatedBytes() - bytesBefore;
+        return new long[]{ops, now - start, bytes};
+    }
+
+    private static void report(String name, Difficulty difficulty, int size, long[] r) {
+        double seconds = r[1] / 1e9;
+        String alloc = r[2] < 0 ? "n/a" : String.format("%.1f", (double) r[2] / r[0]);
+        System.out.printf("%-17s %-6s %5d %14.0f %12.3f %12s%n",
+                name, difficulty, size, r[0] / seconds, r[1] / 1e3 / r[0], alloc);
+    }
+}
@@ -5,123 +5,526 @@ import model.*;
 import util.Config;
 
 public class AIEngine {
+    private static final int DECISION_TABLE_BITS = 14;
+    private static final int CANDIDATE_LIMIT = 1024;   // gems selectBestCoin scores before scanning them all
+
     private Maze maze;
     private final int[] dx = {-1, 1, 0, 0};
     private final int[] dy = {0, 0, -1, 1};
+    private final SearchContext ctx;
+    private JumpPointSearch jps;
+    private BidirectionalSearch bidirectional;
+    private DivideAndConquerSearch dnc;
+    private HierarchicalSearch hierarchical;
+    private RoutePlanner routes;
+    private DistanceMap gradient;
+    private CorridorGraph corridors;
+    private boolean fieldCut;          // the last distance field ran out of budget
+    private int autoDensity = -1;
+    private AlgorithmType lastAutoChoice;
+    private BitBoard bits;
+    private int bitsVersion;
+    private long[] gemBits;
+    private int[] gemSteps;
+    private final int[] candidates = new int[CANDIDATE_LIMIT];
+    private AdversarialSearch adversarial;
+    private MonteCarloSearch monteCarlo;
+    private TranspositionTable decisions;
+    private int decisionWalls;         // maze wall version the tables were filled on
+    private Player opponent;
+    private final Map<String, Pathfinder.Instance> plugins = new HashMap<>();
+
+    // Plan kept between turns: ctx.path from the last search, walked one
+    // step per move until the maze changes or the CPU leaves it
+    private AlgorithmType planType;
+    private Pathfinder.Instance planPlugin;
+    private int planTarget = -1;
+    private int planCursor;
+    private int planVersion;
+    private int movesRemaining = Integer.MAX_VALUE;
+
+    // Cost of the last move and of every move so far, updated in place
+    private final MoveStats lastMove = new MoveStats();
+    private final MoveStats totals = new MoveStats();
+    private long statsStart, statsBytes, treeNodes;
 
     public AIEngine(Maze maze) {
         this.maze = maze;
+        this.ctx = new SearchContext(maze);
+    }
+
+    // The human player, needed by the searches that play against it
+    public void setOpponent(Player opponent) {
+        this.opponent = opponent;
+    }
+
+    // Stops the background threads and maze listeners of the planners
+    // this engine started
+    public void shutdown() {
+        if (routes != null) routes.shutdown();
+        if (hierarchical != null) hierarchical.shutdown();
+        if (gradient != null) gradient.shutdown();
+        if (corridors != null) corridors.shutdown();
+    }
+
+    public MoveStats getLastMoveStats() {
+        return lastMove;
+    }
+
+    public MoveStats getTotalStats() {
+        return totals;
+    }
+
+    // The search AUTO ran for its last query, or null; the costs behind
+    // it are in AlgorithmSelector.shared()
+    public AlgorithmType getLastAutoChoice() {
+        return lastAutoChoice;
     }
 
     public void move(Player cpu, AlgorithmType type) {
-        Node target = selectBestCoin(cpu);
-        if (target == null) return;
+        move(cpu, type, Integer.MAX_VALUE);
+    }
+
+    // movesRemaining is the game's hard move cap, used by route planning
+    public void move(Player cpu, AlgorithmType type, int movesRemaining) {
+        beginStats();
+        play(cpu, type, movesRemaining);
+        endStats();
+    }
+
+    private void play(Player cpu, AlgorithmType type, int movesRemaining) {
+        this.movesRemaining = movesRemaining;
+        boolean gameTree = type == AlgorithmType.ADVERSARIAL || type == AlgorithmType.MCTS;
+        if (gameTree && opponent != null && searchMove(cpu, type)) return;
+        if (type == AlgorithmType.GRADIENT) {
+            gradientStep(cpu);
+            return;
+        }
+        if (type == AlgorithmType.CORRIDOR) {
+            corridorStep(cpu);
+            return;
+        }
+
+        int source = ctx.index(cpu.x, cpu.y);
+        if (!Config.AI_REUSE_PATH || !planStillValid(source, type, null)) {
+            if (!plan(cpu, type, null)) return;
+        }
+        step(cpu);
+    }
+
+    // Plays an algorithm by its PathfinderRegistry name, built in or
+    // plugged in; unknown names play BFS
+    public void move(Player cpu, String algorithm, int movesRemaining) {
+        AlgorithmType type = PathfinderRegistry.builtIn(algorithm);
+        Pathfinder plugin = PathfinderRegistry.get(algorithm);
+        if (type != null || plugin == null) {
+            move(cpu, type != null ? type : AlgorithmType.BFS, movesRemaining);
+            return;
+        }
+
+        beginStats();
+        this.movesRemaining = movesRemaining;
+        Pathfinder.Instance instance = plugins.computeIfAbsent(plugin.name(), n -> plugin.bind(maze));
+        int source = ctx.index(cpu.x, cpu.y);
+        boolean ready = Config.AI_REUSE_PATH && planStillValid(source, null, instance)
+                || plan(cpu, null, instance);
+        if (ready) step(cpu);
+        endStats();
+    }
+
+    private void step(Player cpu) {
+        if (planCursor + 1 < ctx.pathLength) {
+            int next = ctx.path[++planCursor];
+            cpu.x = ctx.row(next);
+            cpu.y = ctx.col(next);
+            // cpu.moves++;
+        }
+    }
+
+    // The plan survives as long as no gem was taken or restored since it
+    // was made (a collected target or a new best gem both bump the maze
+    // version) and the CPU is still standing on it.
+    private boolean planStillValid(int source, AlgorithmType type, Pathfinder.Instance plugin) {
+        return type == planType
+                && plugin == planPlugin
+                && planTarget >= 0
+                && planVersion == maze.getVersion()
+                && planCursor + 1 < ctx.pathLength
+                && ctx.path[planCursor] == source;
+    }
+
+    // One step down the gem distance map; nothing is planned or kept
+    private void gradientStep(Player cpu) {
+        if (gradient == null) gradient = new DistanceMap(maze);
+        planTarget = -1;
+        int next = gradient.next(ctx.index(cpu.x, cpu.y));
+        if (next < 0) return;
+        cpu.x = ctx.row(next);
+        cpu.y = ctx.col(next);
+    }
+
+    // Dijkstra on the corridor graph every move, expanded only as far as
+    // the next step. The target is kept until the maze changes.
+    private void corridorStep(Player cpu) {
+        if (corridors == null) corridors = new CorridorGraph(maze);
+        if (planType != AlgorithmType.CORRIDOR || planTarget < 0 || planVersion != maze.getVersion()) {
+            planType = AlgorithmType.CORRIDOR;
+            planPlugin = null;
+            planVersion = maze.getVersion();
+            planTarget = selectBestCoin(cpu);
+            ctx.pathLength = 0;
+        }
+        if (planTarget < 0) return;
+        int next = corridors.firstStep(ctx.index(cpu.x, cpu.y), planTarget);
+        if (next < 0) return;
+        cpu.x = ctx.row(next);
+        cpu.y = ctx.col(next);
+    }
+
+    // One step chosen by game-tree search; false to fall back to a plan.
+    // A state this engine has already decided (same gems, positions and
+    // moves left, e.g. when a reset board is replayed) gets the same move
+    // again without a search. The key leaves out the walls, so both tables
+    // are cleared when they change, and a replayed move must still be a
+    // legal step.
+    private boolean searchMove(Player cpu, AlgorithmType type) {
+        if (decisionWalls != maze.getWallVersion()) {
+            decisionWalls = maze.getWallVersion();
+            if (decisions != null) decisions.clear();
+            if (adversarial != null) adversarial.clear();
+        }
+        long key = maze.getGemHash() ^ Zobrist.cpu(ctx.index(cpu.x, cpu.y))
+                ^ Zobrist.human(ctx.index(opponent.x, opponent.y))
+                ^ Zobrist.movesLeft(movesRemaining) ^ Zobrist.tag(type.ordinal());
+        if (Config.AI_REUSE_DECISIONS) {
+            if (decisions == null) decisions = new TranspositionTable(DECISION_TABLE_BITS);
+            int slot = decisions.probe(key);
+            if (slot >= 0 && isStep(cpu, decisions.move(slot))) {
+                planTarget = -1;
+                cpu.x = ctx.row(decisions.move(slot));
+                cpu.y = ctx.col(decisions.move(slot));
+                return true;
+            }
+        }
+
+        int next;
+        if (type == AlgorithmType.MCTS) {
+            if (monteCarlo == null) monteCarlo = new MonteCarloSearch(maze);
+            next = monteCarlo.bestMove(maze, cpu, opponent, movesRemaining);
+            treeNodes = monteCarlo.nodes();
+        } else {
+            if (adversarial == null) adversarial = new AdversarialSearch(maze);
+            next = adversarial.bestMove(maze, cpu, opponent, movesRemaining);
+            treeNodes = adversarial.nodes();
+        }
+        if (next < 0) return false;
+        if (decisions != null) decisions.store(key, 0, 0, TranspositionTable.EXACT, next);
+        planTarget = -1;
+        cpu.x = ctx.row(next);
+        cpu.y = ctx.col(next);
+        return true;
+    }
+
+    // An open neighbour of the CPU, or its own cell when it is walled in
+    private boolean isStep(Player cpu, int cell) {
+        int x = ctx.row(cell), y = ctx.col(cell);
+        return maze.valid(x, y) && Math.abs(x - cpu.x) + Math.abs(y - cpu.y) <= 1;
+    }
+
+    // ================= Instrumentation =================
+    private void beginStats() {
+        ctx.resetStats();
+        if (dnc != null) dnc.resetStats();
+        if (gradient != null) gradient.resetStats();
+        if (corridors != null) corridors.resetStats();
+        treeNodes = 0;
+        statsBytes = MoveStats.threadAllocatedBytes();
+        statsStart = System.nanoTime();
+    }
+
+    private void endStats() {
+        long nanos = System.nanoTime() - statsStart;
+        long bytes = MoveStats.threadAllocatedBytes();
+        lastMove.reset();
+        lastMove.moves = 1;
+        lastMove.nanos = nanos;
+        lastMove.maxNanos = nanos;
+        lastMove.bytesAllocated = statsBytes < 0 ? -1 : bytes - statsBytes;
+        lastMove.nodesExpanded = treeNodes;
+        ctx.addStats(lastMove);
+        if (dnc != null) dnc.addStats(lastMove);
+        if (gradient != null) gradient.addStats(lastMove);
+        if (corridors != null) corridors.addStats(lastMove);
+        totals.add(lastMove);
+    }
+
+    // Picks a target and fills ctx.path, with the plug-in when one is
+    // given; false when no gem is left
+    private boolean plan(Player cpu, AlgorithmType type, Pathfinder.Instance plugin) {
+        planType = type;
+        planPlugin = plugin;
+        planTarget = -1;
+        planCursor = 0;
+        planVersion = maze.getVersion();
+
+        int source = ctx.index(cpu.x, cpu.y);
+        int target = -1;
+        if (type == AlgorithmType.ORIENTEERING) {
+            if (routes == null) routes = new RoutePlanner(maze);
+            target = routes.nextTarget(source, movesRemaining);
+        }
+        if (target < 0) target = selectBestCoin(cpu);
+        if (target < 0) {
+            ctx.pathLength = 0;
+            return false;
+        }
+
+        if (plugin != null) {
+            ctx.pathLength = plugin.findPath(source, target, ctx.path);
+        } else {
+            // selectBestCoin just left the distance field from the CPU in ctx
+            search(type, source, target, Config.AI_USE_DISTANCE_FIELD);
+        }
+        planTarget = target;
+        return true;
+    }
+
+    // ================= Path Search =================
+    // Shortest (or, for DFS/GREEDY, some) path from source to target in
+    // the given algorithm's own way. Returns the number of cells on it,
+    // source and target included, or 0 when none was found within the
+    // search budget. Used by the benchmarks; move() plans through search().
+    public int findPath(AlgorithmType type, int sx, int sy, int tx, int ty) {
+        search(type, ctx.index(sx, sy), ctx.index(tx, ty), false);
+        return ctx.pathLength;
+    }
+
+    // Copies the path into out for BuiltinPathfinder; same contract as
+    // Pathfinder.Instance.findPath
+    int findPath(AlgorithmType type, int source, int target, int[] out) {
+        search(type, source, target, false);
+        System.arraycopy(ctx.path, 0, out, 0, ctx.pathLength);
+        return ctx.pathLength;
+    }
+
+    // Fills ctx.path from source to target; fieldReady says whether ctx
+    // still holds a distance field that BFS may read the path from
+    private void search(AlgorithmType type, int source, int target, boolean fieldReady) {
+        int tx = ctx.row(target);
+        int ty = ctx.col(target);
 
-        List<Node> path;
         switch (type) {
             case BFS:
-                path = bfs(cpu.x, cpu.y, target.x, target.y);
+            case ADVERSARIAL:    // without an opponent to play against
+            case MCTS:
+            case GRADIENT:       // the goal map has no single target
+                // The distance field is the BFS tree from the CPU, so reuse it
+                if (fieldReady && ctx.source == source) {
+                    ctx.tracePath(reached(target) ? target : -1);
+                    if (ctx.pathLength == 0 && fieldCut) ctx.budgetHit = true;
+                } else {
+                    ctx.tracePath(bfsSearch(ctx, source, target));
+                }
                 break;
             case DFS:
-                path = dfs(cpu.x, cpu.y, target.x, target.y);
+                ctx.tracePath(dfsSearch(source, target));
                 break;
             case GREEDY:
-                path = greedy(cpu.x, cpu.y, target.x, target.y);
+                greedyPath(ctx.row(source), ctx.col(source), tx, ty);
+                break;
+            case ASTAR:
+                ctx.tracePath(astarSearch(source, target));
+                break;
+            case JPS:
+                if (jps == null) jps = new JumpPointSearch(ctx);
+                jps.tracePath(jps.search(source, target));
+                break;
+            case BIDIRECTIONAL:
+                if (bidirectional == null) bidirectional = new BidirectionalSearch(ctx);
+                bidirectional.search(source, target);
+                break;
+            case HPA:
+                if (hierarchical == null) hierarchical = new HierarchicalSearch(ctx);
+                hierarchical.search(source, target);
                 break;
-            // case ASTAR:
-            //     path = astar(cpu.x, cpu.y, target.x, target.y);
-            //     break;
             case DNC:
-                path = divideAndConquerPath(cpu.x, cpu.y, target.x, target.y);
+                if (dnc == null) dnc = new DivideAndConquerSearch(maze);
+                int[] cells = dnc.search(source, target);
+                ctx.setPath(cells, cells.length);
+                if (cells.length == 0 && dnc.budgetHit()) ctx.budgetHit = true;
+                break;
+            case AUTO:
+                if (autoDensity < 0) autoDensity = AlgorithmSelector.densityBand(maze);
+                int band = AlgorithmSelector.distanceBand(maze.size, source, target);
+                AlgorithmType pick = AlgorithmSelector.shared().choose(autoDensity, band);
+                // Timed on its own: BFS floods afresh instead of reading the
+                // distance field, and a search that gave up is not recorded
+                long start = System.nanoTime();
+                search(pick, source, target, false);
+                long elapsed = System.nanoTime() - start;
+                if (ctx.pathLength > 0) AlgorithmSelector.shared().record(autoDensity, band, pick, elapsed);
+                lastAutoChoice = pick;
+                break;
+            case CORRIDOR:
+                if (corridors == null) corridors = new CorridorGraph(maze);
+                ctx.pathLength = corridors.path(source, target, ctx.path);
+                break;
+            case ORIENTEERING:
+                int[] field = routes != null ? routes.fieldFor(target) : null;
+                if (field == null || !descend(field, source)) {
+                    ctx.tracePath(astarSearch(source, target));
+                }
                 break;
             default:
-                path = Collections.emptyList();
+                ctx.pathLength = 0;
         }
+    }
 
-        if (path.size() > 1) {
-            Node next = path.get(1);
-            cpu.x = next.x;
-            cpu.y = next.y;
-            // cpu.moves++;
+    // Returns the flat index of the best gem, or -1 when none is left.
+    //
+    // A gem's score is its value over its path distance, and a path is at
+    // least Manhattan distance + 1 cells long, so value / (Manhattan + 1)
+    // bounds the score. The nearest few gems from the maze's GemIndex
+    // give a score to beat, and only the gems whose bound reaches it are
+    // scored. Ties go to the lowest cell, as they did when the whole grid
+    // was scanned in order, so the pick is the same either way. Without a
+    // reached gem to beat, every gem is scored.
+    public int selectBestCoin(Player cpu) {
+        int source = ctx.index(cpu.x, cpu.y);
+        long[] gemsReached = null;
+        if (Config.AI_USE_DISTANCE_FIELD) {
+            computeDistanceField(source);
+        } else {
+            gemsReached = sweepGems(cpu);
         }
-    }
 
-    private Node selectBestCoin(Player cpu) {
+        GemIndex index = maze.getGemIndex();
+        int n = index.nearest(cpu.x, cpu.y, Config.GEM_NEAREST_CANDIDATES, candidates);
+        double floor = 0;
+        for (int k = 0; k < n; k++) {
+            if (gemDistance(candidates[k], gemsReached) != Integer.MAX_VALUE) {
+                floor = Math.max(floor, gemScore(candidates[k], gemsReached));
+            }
+        }
+        int m = floor > 0 ? index.within(cpu.x, cpu.y, floor, candidates) : -1;
+
         double bestScore = -1;
-        Node best = null;
-        for (int i = 0; i < maze.size; i++) {
-            for (int j = 0; j < maze.size; j++) {
-                if (maze.hasCash(i, j)) {
-                    int value = maze.cash[i][j];
-                    List<Node> path = bfs(cpu.x, cpu.y, i, j); // Real path distance
-                    int dist = path.isEmpty() ? Integer.MAX_VALUE : path.size();
-                    if (dist == 0) dist = 1;
-                    double score = (double) value / dist;
-                    if (score > bestScore) {
-                        bestScore = score;
-                        best = new Node(i, j);
-                    }
-                }
+        int best = -1;
+        int slots = m >= 0 ? m : maze.gemSlots();
+        for (int k = 0; k < slots; k++) {
+            int cell = m >= 0 ? candidates[k] : maze.gem(k);
+            if (cell < 0) continue;
+            double score = gemScore(cell, gemsReached);
+            if (score > bestScore || score == bestScore && cell < best) {
+                bestScore = score;
+                best = cell;
             }
         }
         return best;
     }
 
-    private List<Node> bfs(int sx, int sy, int tx, int ty) {
-        boolean[][] visited = new boolean[maze.size][maze.size];
-        Node[][] parent = new Node[maze.size][maze.size];
-        Queue<Node> q = new LinkedList<>();
-        q.add(new Node(sx, sy));
-        visited[sx][sy] = true;
+    private double gemScore(int cell, long[] gemsReached) {
+        int dist = gemDistance(cell, gemsReached);
+        if (dist == 0) dist = 1;
+        return (double) maze.cashAt(ctx.row(cell), ctx.col(cell)) / dist;
+    }
+
+    // Path length in cells, like ctx.dist, or Integer.MAX_VALUE
+    private int gemDistance(int cell, long[] gemsReached) {
+        if (Config.AI_USE_DISTANCE_FIELD) {
+            return reached(cell) ? ctx.dist[cell] : Integer.MAX_VALUE;
+        }
+        return bits.contains(gemsReached, ctx.row(cell), ctx.col(cell)) ? gemSteps[cell] + 1 : Integer.MAX_VALUE;
+    }
+
+    // ================= Gem Sweep =================
+    // Without a distance field: one bit-parallel BFS from the CPU that
+    // records the distance to every gem it passes, instead of one BFS per
+    // gem. Same budget as bfs(), though the sweep finishes its last level.
+    private long[] sweepGems(Player cpu) {
+        if (bits == null) {
+            bits = new BitBoard(maze);
+            gemBits = bits.newSet();
+            gemSteps = new int[maze.size * maze.size];
+        } else if (bitsVersion != maze.getVersion()) {
+            bits.load(maze);    // a reset can restore walls
+        }
+        bitsVersion = maze.getVersion();
+        return bits.distances(cpu.x, cpu.y, bits.gems(maze, gemBits), gemSteps, Config.BFS_MAX_DEPTH);
+    }
+
+    // ================= Distance Field =================
+    // One flood fill from the CPU with the same expansion budget as bfs().
+    // BFS pops cells in an order that does not depend on the target, so
+    // ctx.dist[cell] equals bfs(sx, sy, x, y).size() for every cell the
+    // flood settled; cells still queued when the budget ran out are
+    // cleared, exactly as bfs would give up on them. Running out of
+    // budget here is only a budget hit if it costs the chosen gem its path.
+    private void computeDistanceField(int source) {
+        ctx.begin(source);
+        ctx.push(source);
         int depth = 0;
 
-        while (!q.isEmpty() && depth < Config.BFS_MAX_DEPTH) {
-            Node cur = q.poll();
-            if (cur.x == tx && cur.y == ty)
-                return reconstruct(parent, cur);
-            for (int d = 0; d < 4; d++) {
-                int nx = cur.x + dx[d];
-                int ny = cur.y + dy[d];
-                if (maze.valid(nx, ny) && !visited[nx][ny]) {
-                    visited[nx][ny] = true;
-                    parent[nx][ny] = cur;
-                    q.add(new Node(nx, ny));
-                }
-            }
+        while (!ctx.isEmpty() && depth < Config.BFS_MAX_DEPTH) {
+            expand(ctx, ctx.poll());
             depth++;
         }
-        return Collections.emptyList();
+        fieldCut = !ctx.isEmpty();
+        ctx.clearQueued();
+    }
+
+    private boolean reached(int cell) {
+        return ctx.visited(cell) && ctx.dist[cell] > 0;
     }
 
-    private List<Node> dfs(int sx, int sy, int tx, int ty) {
-        boolean[][] visited = new boolean[maze.size][maze.size];
-        Stack<Node> stack = new Stack<>();
-        Node[][] parent = new Node[maze.size][maze.size];
-        stack.push(new Node(sx, sy));
-        visited[sx][sy] = true;
+    // ================= BFS / DFS Core =================
+    // Both searches return the index of the target once it is popped, or -1.
+    // The path is left in ctx's parent links for tracePath().
+    static int bfsSearch(SearchContext ctx, int source, int target) {
+        ctx.begin(source);
+        ctx.push(source);
         int depth = 0;
 
-        while (!stack.isEmpty() && depth < Config.BFS_MAX_DEPTH) {
-            Node cur = stack.pop();
-            if (cur.x == tx && cur.y == ty)
-                return reconstruct(parent, cur);
-            for (int d = 0; d < 4; d++) {
-                int nx = cur.x + dx[d];
-                int ny = cur.y + dy[d];
-                if (maze.valid(nx, ny) && !visited[nx][ny]) {
-                    visited[nx][ny] = true;
-                    parent[nx][ny] = cur;
-                    stack.push(new Node(nx, ny));
-                }
-            }
+        while (!ctx.isEmpty() && depth < Config.BFS_MAX_DEPTH) {
+            int cur = ctx.poll();
+            if (cur == target) return cur;
+            expand(ctx, cur);
             depth++;
         }
-        return Collections.emptyList();
+        if (!ctx.isEmpty()) ctx.budgetHit = true;
+        return -1;
     }
 
-    private List<Node> greedy(int sx, int sy, int tx, int ty) {
-        List<Node> path = new ArrayList<>();
-        path.add(new Node(sx, sy));
+    private int dfsSearch(int source, int target) {
+        ctx.begin(source);
+        ctx.push(source);
+        int depth = 0;
+
+        while (!ctx.isEmpty() && depth < Config.BFS_MAX_DEPTH) {
+            int cur = ctx.pop();
+            if (cur == target) return cur;
+            expand(ctx, cur);
+            depth++;
+        }
+        if (!ctx.isEmpty()) ctx.budgetHit = true;
+        return -1;
+    }
+
+    // Marks and queues every unvisited open neighbour of cur
+    private static void expand(SearchContext ctx, int cur) {
+        for (int d = 0; d < 4; d++) {
+            int next = ctx.neighbor(cur, d);
+            if (next >= 0 && !ctx.visited(next)) {
+                ctx.visit(next, d);
+                ctx.dist[next] = ctx.dist[cur] + 1;
+                ctx.push(next);
+            }
+        }
+    }
+
+    private void greedyPath(int sx, int sy, int tx, int ty) {
+        int len = 0;
+        ctx.path[len++] = ctx.index(sx, sy);
         int cx = sx, cy = sy;
         int depth = 0;
         while ((cx != tx || cy != ty) && depth < Config.BFS_MAX_DEPTH) {
@@ -141,99 +544,81 @@ public class AIEngine {
             if (bestD == -1) break;
             cx += dx[bestD];
             cy += dy[bestD];
-            path.add(new Node(cx, cy));
+            ctx.path[len++] = ctx.index(cx, cy);
             depth++;
         }
-        return path;
-    }
-
-    private List<Node> divideAndConquerPath(int sx, int sy, int tx, int ty) {
-
-    // If very close → use BFS directly
-    if (Math.abs(sx - tx) + Math.abs(sy - ty) <= 4) {
-        return bfs(sx, sy, tx, ty);
-    }
-
-    int midX = (sx + tx) / 2;
-    int midY = (sy + ty) / 2;
-
-    // If midpoint invalid, fallback to BFS
-    if (!maze.valid(midX, midY)) {
-        return bfs(sx, sy, tx, ty);
+        if (depth >= Config.BFS_MAX_DEPTH && (cx != tx || cy != ty)) ctx.budgetHit = true;
+        ctx.pathLength = len;
     }
 
-    // Solve first half
-    List<Node> first = bfs(sx, sy, midX, midY);
-
-    // If failed → fallback
-    if (first == null || first.isEmpty()) {
-        return bfs(sx, sy, tx, ty);
-    }
-
-    // Solve second half
-    List<Node> second = bfs(midX, midY, tx, ty);
-
-    if (second == null || second.isEmpty()) {
-        return bfs(sx, sy, tx, ty);
+    // Walks down a gem's distance field (steps to the gem) from source;
+    // false, with no path, when the field does not lead there
+    private boolean descend(int[] field, int source) {
+        ctx.pathLength = 0;
+        if (field[source] < 0) return false;
+        int len = 0;
+        int cur = source;
+        ctx.path[len++] = cur;
+        while (field[cur] > 0) {
+            // Among equally short steps, pick up the richest gem on the way
+            int best = -1, bestCash = -1;
+            for (int d = 0; d < 4; d++) {
+                int next = ctx.neighbor(cur, d);
+                if (next >= 0 && field[next] == field[cur] - 1) {
+                    int x = ctx.row(next), y = ctx.col(next);
+                    int cash = maze.cashAt(x, y);
+                    if (cash > bestCash) {
+                        best = next;
+                        bestCash = cash;
+                    }
+                }
+            }
+            if (best < 0) return false;
+            cur = best;
+            ctx.path[len++] = cur;
+        }
+        ctx.pathLength = len;
+        return true;
     }
 
-    // Merge paths
-    first.remove(first.size() - 1);
-    first.addAll(second);
-
-    return first;
-}
+    // ================= A* =================
+    // Best-first on f = g + h with an indexed heap: every open cell is
+    // queued once and relaxed with decrease-key, and expanded cells go
+    // into the closed set. Ties on f prefer the cell nearer the target.
+    private int astarSearch(int source, int target) {
+        int tx = ctx.row(target);
+        int ty = ctx.col(target);
 
-    private List<Node> astar(int sx, int sy, int tx, int ty) {
-        PriorityQueue<Node> pq = new PriorityQueue<>((a, b) -> {
-            int costA = Math.abs(a.x - tx) + Math.abs(a.y - ty) + a.cost;
-            int costB = Math.abs(b.x - tx) + Math.abs(b.y - ty) + b.cost;
-            return costA - costB;
-        });
-        boolean[][] visited = new boolean[maze.size][maze.size];
-        Node[][] parent = new Node[maze.size][maze.size];
-        pq.add(new Node(sx, sy, 0));
+        ctx.begin(source);
+        ctx.heap.offer(source, astarKey(0, manhattan(source, tx, ty)));
         int depth = 0;
 
-        while (!pq.isEmpty() && depth < Config.BFS_MAX_DEPTH) {
-            Node cur = pq.poll();
-            if (cur.x == tx && cur.y == ty)
-                return reconstruct(parent, cur);
-            if (visited[cur.x][cur.y]) continue;
-            visited[cur.x][cur.y] = true;
+        while (!ctx.heap.isEmpty() && depth < Config.BFS_MAX_DEPTH) {
+            int cur = ctx.heap.poll();
+            if (cur == target) return cur;
+            ctx.close(cur);
+
+            int g = ctx.dist[cur];
             for (int d = 0; d < 4; d++) {
-                int nx = cur.x + dx[d];
-                int ny = cur.y + dy[d];
-                if (maze.valid(nx, ny) && !visited[nx][ny]) {
-                    parent[nx][ny] = cur;
-                    pq.add(new Node(nx, ny, cur.cost + 1));
-                }
+                int next = ctx.neighbor(cur, d);
+                if (next < 0 || ctx.isClosed(next)) continue;
+                if (ctx.visited(next) && ctx.dist[next] <= g + 1) continue;
+                ctx.visit(next, d);
+                ctx.dist[next] = g + 1;
+                ctx.heap.offer(next, astarKey(g, manhattan(next, tx, ty)));
             }
             depth++;
         }
-        return Collections.emptyList();
+        if (!ctx.heap.isEmpty()) ctx.budgetHit = true;
+        return -1;
     }
 
-    private List<Node> reconstruct(Node[][] parent, Node end) {
-        List<Node> path = new ArrayList<>();
-        Node cur = end;
-        while (cur != null) {
-            path.add(cur);
-            cur = parent[cur.x][cur.y];
-        }
-        Collections.reverse(path);
-        return path;
+    // ctx.dist counts path nodes, so g is dist - 1
+    private static long astarKey(int g, int h) {
+        return ((long) (g + h) << 32) | h;
     }
 
-    private static class Node {
-        int x, y, cost;
-        Node(int x, int y) {
-            this(x, y, 0);
-        }
-        Node(int x, int y, int cost) {
-            this.x = x;
-            this.y = y;
-            this.cost = cost;
-        }
+    private int manhattan(int cell, int tx, int ty) {
+        return Math.abs(ctx.row(cell) - tx) + Math.abs(ctx.col(cell) - ty);
     }
 }
\ No newline at end of file
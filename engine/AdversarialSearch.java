@@ -0,0 +1,179 @@
+package engine;
+
+import model.Maze;
+import model.Player;
+import util.Config;
+
+// Iterative-deepening alpha-beta over both players' moves.
+//
+// The CPU maximises its score lead over the human, who is assumed to
+// play the best reply. Each iteration searches one ply deeper than the
+// last, trying the previous best root move first, until
+// Config.ADVERSARIAL_TIME_BUDGET_MS runs out; an iteration cut short by
+// the deadline is thrown away, so the answer always comes from a fully
+// searched depth and gets stronger with more time.
+//
+// Searched states go into a transposition table keyed by the state's
+// Zobrist hash, which outlives the call: a state reached again by another
+// move order, on a later turn or after the board is reset and replayed
+// reuses its value (when searched deep enough) or at least its best
+// move, which is tried first. Values are stored without the score banked
+// since the root (GameState.lead), so they hold from any root.
+final class AdversarialSearch {
+
+    private static final int INF = Integer.MAX_VALUE / 2;
+    private static final int CHECK_EVERY = 1023;
+
+    private final GameState state;
+    private final int[][] moves;
+    private final TranspositionTable table;
+
+    private long deadline;
+    private long nodes;
+    private boolean aborted;
+
+    AdversarialSearch(Maze maze) {
+        this.state = new GameState(maze.size);
+        this.moves = new int[Config.ADVERSARIAL_MAX_DEPTH + 1][4];
+        this.table = new TranspositionTable(Config.ADVERSARIAL_TABLE_BITS);
+    }
+
+    // Cell the CPU should step to, or -1 when not even depth 1 finished
+    int bestMove(Maze maze, Player cpu, Player human, int movesRemaining) {
+        state.load(maze, cpu, human, movesRemaining);
+        deadline = System.nanoTime() + Config.ADVERSARIAL_TIME_BUDGET_MS * 1_000_000L;
+        nodes = 0;
+        aborted = false;
+        table.newSearch();
+
+        // The CPU moves now, then the human: a CPU/human pair per move left,
+        // the human's reply to the CPU's last move included, since a gem
+        // taken then still counts. A root already searched to the horizon
+        // is not searched again.
+        int plies = (int) Math.min(Config.ADVERSARIAL_MAX_DEPTH, 2L * movesRemaining);
+        int slot = table.probe(state.hash);
+        if (slot >= 0 && table.depth(slot) >= plies && table.bound(slot) == TranspositionTable.EXACT) {
+            return table.move(slot);
+        }
+
+        int best = slot >= 0 ? table.move(slot) : -1;
+        for (int depth = 1; depth <= plies; depth++) {
+            int move = searchRoot(depth, best);
+            if (aborted) break;
+            best = move;
+            if (state.gemsLeft == 0) break;
+        }
+        return best;
+    }
+
+    // Forgets every searched state, for when the walls change under them
+    void clear() {
+        table.clear();
+    }
+
+    // Nodes visited by the last bestMove()
+    long nodes() {
+        return nodes;
+    }
+
+    // ================= Alpha-Beta =================
+    private int searchRoot(int depth, int first) {
+        int[] buf = moves[depth];
+        int n = state.moves(buf);
+        tryFirst(buf, n, first);
+
+        int from = state.cpu;
+        int alpha = -INF;
+        int best = buf[0];
+        for (int k = 0; k < n; k++) {
+            int taken = state.play(buf[k]);
+            int score = -negamax(depth - 1, -INF, -alpha);
+            state.undo(from, taken);
+            if (aborted) break;
+            if (score > alpha) {
+                alpha = score;
+                best = buf[k];
+            }
+        }
+        if (!aborted) table.store(state.hash, depth, alpha - state.lead(), TranspositionTable.EXACT, best);
+        return best;
+    }
+
+    // Value for the side to move
+    private int negamax(int depth, int alpha, int beta) {
+        if ((++nodes & CHECK_EVERY) == 0 && System.nanoTime() > deadline) aborted = true;
+        if (aborted) return 0;
+        if (depth == 0 || state.isOver()) {
+            return state.cpuToMove ? state.evaluate() : -state.evaluate();
+        }
+
+        // A deep enough stored value settles the node, or narrows it to a
+        // cutoff; otherwise its stored best move goes first
+        int lead = state.lead();
+        int slot = table.probe(state.hash);
+        int first = -1;
+        if (slot >= 0) {
+            first = table.move(slot);
+            if (table.depth(slot) >= depth) {
+                int value = table.value(slot) + lead;
+                byte bound = table.bound(slot);
+                if (bound == TranspositionTable.EXACT
+                        || bound == TranspositionTable.LOWER && value >= beta
+                        || bound == TranspositionTable.UPPER && value <= alpha) {
+                    return value;
+                }
+            }
+        }
+
+        int[] buf = moves[depth];
+        int n = state.moves(buf);
+        sortByCash(buf, n);
+        tryFirst(buf, n, first);
+        int from = state.mover();
+        int alpha0 = alpha;
+        int best = -INF;
+        int bestMove = buf[0];
+        for (int k = 0; k < n; k++) {
+            int taken = state.play(buf[k]);
+            int score = -negamax(depth - 1, -beta, -alpha);
+            state.undo(from, taken);
+            if (score > best) {
+                best = score;
+                bestMove = buf[k];
+            }
+            if (best > alpha) alpha = best;
+            if (alpha >= beta) break;
+        }
+        if (!aborted) {
+            byte bound = best >= beta ? TranspositionTable.LOWER
+                    : best <= alpha0 ? TranspositionTable.UPPER
+                    : TranspositionTable.EXACT;
+            table.store(state.hash, depth, best - lead, bound, bestMove);
+        }
+        return best;
+    }
+
+    // Moves first to the front, keeping the order of the rest
+    private static void tryFirst(int[] buf, int n, int first) {
+        for (int k = 1; k < n; k++) {
+            if (buf[k] == first) {
+                System.arraycopy(buf, 0, buf, 1, k);
+                buf[0] = first;
+                return;
+            }
+        }
+    }
+
+    // Gem grabs first, richest first
+    private void sortByCash(int[] buf, int n) {
+        for (int k = 1; k < n; k++) {
+            int cell = buf[k];
+            int j = k;
+            while (j > 0 && state.cash[buf[j - 1]] < state.cash[cell]) {
+                buf[j] = buf[j - 1];
+                j--;
+            }
+            buf[j] = cell;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package engine;
+
+import model.Maze;
+import util.Config;
+
+// Picks the search for AUTO, one query at a time, from measured cost.
+//
+// Queries are bucketed by the maze's wall density (tenths, up to 30%+)
+// and by the Manhattan distance to the target (under 8, then doubling up
+// to 64+). Each bucket keeps a moving average of the wall-clock time of
+// every candidate and routes the query to the cheapest, after trying each
+// AUTO_WARMUP times and with every Config.AUTO_EXPLORE_EVERY-th query
+// going to the least tried one so the averages keep up. Timings are
+// noisy (GC, other threads), so the warm-up keeps the fastest run and
+// later runs count at most OUTLIER times the average. Only optimal
+// searches are candidates, but each gives up after Config.BFS_MAX_DEPTH
+// pops and they spend those differently, so the pick can decide whether
+// a path is found at all. Only searches that found one are timed, so a
+// candidate cannot look cheap by failing fast, and one that never has is
+// only picked to explore.
+//
+// One table is shared by every engine (and thread), so what one game
+// learns carries over to the next game on a similar maze.
+public final class AlgorithmSelector {
+
+    static final AlgorithmType[] CANDIDATES = {
+            AlgorithmType.BFS, AlgorithmType.ASTAR, AlgorithmType.JPS, AlgorithmType.BIDIRECTIONAL
+    };
+
+    private static final int DENSITY_BANDS = 4;
+    private static final int DISTANCE_BANDS = 5;
+    private static final int AUTO_WARMUP = 3;
+    private static final double SMOOTHING = 0.1;
+    private static final double OUTLIER = 4;
+
+    private static final AlgorithmSelector SHARED = new AlgorithmSelector();
+
+    private final long[] queries = new long[DENSITY_BANDS * DISTANCE_BANDS];
+    private final long[][] samples = new long[queries.length][CANDIDATES.length];
+    private final long[][] chosen = new long[queries.length][CANDIDATES.length];
+    private final double[][] nanos = new double[queries.length][CANDIDATES.length];
+
+    private AlgorithmSelector() {
+    }
+
+    public static AlgorithmSelector shared() {
+        return SHARED;
+    }
+
+    // ================= Buckets =================
+    static int densityBand(Maze maze) {
+        int walls = 0;
+        for (int i = 0; i < maze.size; i++) {
+            for (int j = 0; j < maze.size; j++) {
+                if (!maze.valid(i, j)) walls++;
+            }
+        }
+        return Math.min(DENSITY_BANDS - 1, walls * 10 / (maze.size * maze.size));
+    }
+
+    static int distanceBand(int size, int source, int target) {
+        int d = Math.abs(source / size - target / size) + Math.abs(source % size - target % size);
+        if (d < 8) return 0;
+        return Math.min(DISTANCE_BANDS - 1, 31 - Integer.numberOfLeadingZeros(d) - 2);
+    }
+
+    // ================= Routing =================
+    synchronized AlgorithmType choose(int density, int distance) {
+        int b = density * DISTANCE_BANDS + distance;
+        long q = queries[b]++;
+        int pick = leastTried(b);
+        if (chosen[b][pick] >= AUTO_WARMUP && q % Config.AUTO_EXPLORE_EVERY != 0) {
+            // The cheapest that has found a path; where none has, keep rotating
+            int cheapest = -1;
+            for (int k = 0; k < CANDIDATES.length; k++) {
+                if (samples[b][k] > 0 && (cheapest < 0 || nanos[b][k] < nanos[b][cheapest])) cheapest = k;
+            }
+            if (cheapest >= 0) pick = cheapest;
+        }
+        chosen[b][pick]++;
+        return CANDIDATES[pick];
+    }
+
+    synchronized void record(int density, int distance, AlgorithmType type, long elapsed) {
+        int b = density * DISTANCE_BANDS + distance;
+        for (int k = 0; k < CANDIDATES.length; k++) {
+            if (CANDIDATES[k] != type) continue;
+            long n = ++samples[b][k];
+            double avg = nanos[b][k];
+            if (n == 1) {
+                nanos[b][k] = elapsed;
+            } else if (n <= AUTO_WARMUP) {
+                nanos[b][k] = Math.min(avg, elapsed);
+            } else {
+                nanos[b][k] = avg + SMOOTHING * (Math.min(elapsed, OUTLIER * avg) - avg);
+            }
+        }
+    }
+
+    private int leastTried(int b) {
+        int least = 0;
+        for (int k = 1; k < CANDIDATES.length; k++) {
+            if (chosen[b][k] < chosen[b][least]) least = k;
+        }
+        return least;
+    }
+
+    // ================= Inspection =================
+    // Average cost in microseconds of the algorithm in the bucket, or -1
+    // before it has been measured there
+    public synchronized double averageMicros(int density, int distance, AlgorithmType type) {
+        int b = density * DISTANCE_BANDS + distance;
+        for (int k = 0; k < CANDIDATES.length; k++) {
+            if (CANDIDATES[k] == type && samples[b][k] > 0) return nanos[b][k] / 1e3;
+        }
+        return -1;
+    }
+
+    public synchronized void reset() {
+        for (int b = 0; b < queries.length; b++) {
+            queries[b] = 0;
+            for (int k = 0; k < CANDIDATES.length; k++) {
+                samples[b][k] = 0;
+                chosen[b][k] = 0;
+                nanos[b][k] = 0;
+            }
+        }
+    }
+
+    // One line per bucket that has seen queries: average us per query
+    // and how often each candidate was chosen
+    public synchronized String report() {
+        StringBuilder sb = new StringBuilder();
+        String[] densities = {"<10%", "10-20%", "20-30%", "30%+"};
+        String[] distances = {"<8", "8-15", "16-31", "32-63", "64+"};
+        for (int b = 0; b < queries.length; b++) {
+            if (queries[b] == 0) continue;
+            sb.append(String.format("walls %-6s dist %-5s %7d queries:",
+                    densities[b / DISTANCE_BANDS], distances[b % DISTANCE_BANDS], queries[b]));
+            for (int k = 0; k < CANDIDATES.length; k++) {
+                sb.append(String.format("  %s %.1fus x%d", CANDIDATES[k],
+                        nanos[b][k] / 1e3, chosen[b][k]));
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -1,8 +1,29 @@
 package engine;
 
+// Built-in algorithms and what they promise: optimal ones always return
+// a shortest path, budgeted ones give up after Config.BFS_MAX_DEPTH
+// expansions.
 public enum AlgorithmType {
-    BFS,
-    DFS,
-    GREEDY,
-    DNC   
+    BFS(true, true),
+    DFS(false, true),
+    GREEDY(false, true),
+    ASTAR(true, true),
+    JPS(true, true),
+    BIDIRECTIONAL(true, true),
+    HPA(false, true),
+    DNC(false, true),
+    GRADIENT(true, false),
+    CORRIDOR(true, false),
+    AUTO(true, true),
+    ORIENTEERING(true, false),
+    ADVERSARIAL(false, false),
+    MCTS(false, false);
+
+    public final boolean optimal;
+    public final boolean budgeted;
+
+    AlgorithmType(boolean optimal, boolean budgeted) {
+        this.optimal = optimal;
+        this.budgeted = budgeted;
+    }
 }
\ No newline at end of file
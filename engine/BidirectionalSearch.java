@@ -0,0 +1,136 @@
+package engine;
+
+import java.util.Arrays;
+import util.Config;
+
+// Breadth-first search from both ends at once. The forward tree lives in
+// the shared SearchContext; the backward tree from the target has its own
+// epoch-stamped buffers here. Each round expands one whole level of the
+// smaller frontier, and the search stops after the first level in which
+// the trees touch, keeping the shortest meeting point of that level, so
+// the path is as short as the one bfs() finds.
+final class BidirectionalSearch {
+
+    private final SearchContext ctx;
+
+    private final int[] queue;
+    private final int[] stamp;
+    private final int[] dist;
+    private final byte[] parentDir;
+    private int epoch;
+    private int head, tail;
+
+    private int meet;
+    private int best;
+
+    BidirectionalSearch(SearchContext ctx) {
+        this.ctx = ctx;
+        this.queue = new int[ctx.cells];
+        this.stamp = new int[ctx.cells];
+        this.dist = new int[ctx.cells];
+        this.parentDir = new byte[ctx.cells];
+    }
+
+    // Fills ctx.path with a shortest path, or leaves it empty when the
+    // frontiers do not meet within Config.BFS_MAX_DEPTH expansions
+    void search(int source, int target) {
+        ctx.pathLength = 0;
+        ctx.begin(source);
+        ctx.push(source);
+
+        if (epoch == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            epoch = 0;
+        }
+        epoch++;
+        head = tail = 0;
+        stamp[target] = epoch;
+        parentDir[target] = SearchContext.NO_PARENT;
+        dist[target] = 1;
+        queue[tail++] = target;
+
+        if (source == target) {
+            ctx.tracePath(source);
+            return;
+        }
+
+        meet = -1;
+        best = Integer.MAX_VALUE;
+        int budget = Config.BFS_MAX_DEPTH;
+
+        while (!ctx.isEmpty() && head < tail) {
+            int forwardSize = ctx.tail - ctx.head;
+            int backwardSize = tail - head;
+            int used = forwardSize <= backwardSize
+                    ? expandForward(forwardSize, budget)
+                    : expandBackward(backwardSize, budget);
+            if (used < 0) {    // budget ran out mid-level
+                ctx.budgetHit = true;
+                return;
+            }
+            budget -= used;
+            if (meet >= 0) break;
+        }
+        if (meet >= 0) buildPath(meet, target);
+    }
+
+    // ================= Level Expansion =================
+    // Each returns the number of cells expanded, or -1 if the budget ran
+    // out before the level was finished.
+    private int expandForward(int levelSize, int budget) {
+        if (levelSize > budget) return -1;
+        for (int k = 0; k < levelSize; k++) {
+            int cur = ctx.poll();
+            for (int d = 0; d < 4; d++) {
+                int next = ctx.neighbor(cur, d);
+                if (next < 0 || ctx.visited(next)) continue;
+                ctx.visit(next, d);
+                ctx.dist[next] = ctx.dist[cur] + 1;
+                ctx.push(next);
+                if (stamp[next] == epoch) touch(next);
+            }
+        }
+        return levelSize;
+    }
+
+    private int expandBackward(int levelSize, int budget) {
+        if (levelSize > budget) return -1;
+        for (int k = 0; k < levelSize; k++) {
+            int cur = queue[head++];
+            ctx.expanded++;
+            for (int d = 0; d < 4; d++) {
+                int next = ctx.neighbor(cur, d);
+                if (next < 0 || stamp[next] == epoch) continue;
+                stamp[next] = epoch;
+                parentDir[next] = (byte) d;
+                dist[next] = dist[cur] + 1;
+                queue[tail++] = next;
+                ctx.queuePeak = Math.max(ctx.queuePeak, tail - head);
+                if (ctx.visited(next)) touch(next);
+            }
+        }
+        return levelSize;
+    }
+
+    // Both dist arrays count the cell itself, hence the -1
+    private void touch(int cell) {
+        int length = ctx.dist[cell] + dist[cell] - 1;
+        if (length < best) {
+            best = length;
+            meet = cell;
+        }
+    }
+
+    // ================= Path =================
+    private void buildPath(int meet, int target) {
+        ctx.tracePath(meet);
+        int len = ctx.pathLength;
+        int cur = meet;
+        while (cur != target) {
+            int d = parentDir[cur];
+            cur = ctx.index(ctx.row(cur) - SearchContext.DX[d], ctx.col(cur) - SearchContext.DY[d]);
+            ctx.path[len++] = cur;
+        }
+        ctx.pathLength = len;
+    }
+}
@@ -0,0 +1,97 @@
+package engine;
+
+import model.Maze;
+
+// Registry entry for one of the algorithms in AlgorithmType. The engine
+// runs built-ins on its own shared search buffers, so bind() is only
+// used by callers outside the engine. The nested classes exist because
+// ServiceLoader needs one class with a no-arg constructor per provider.
+public class BuiltinPathfinder implements Pathfinder {
+
+    private final AlgorithmType type;
+
+    BuiltinPathfinder(AlgorithmType type) {
+        this.type = type;
+    }
+
+    public AlgorithmType type() {
+        return type;
+    }
+
+    @Override
+    public String name() {
+        return type.name();
+    }
+
+    @Override
+    public boolean isOptimal() {
+        return type.optimal;
+    }
+
+    @Override
+    public boolean supportsBudget() {
+        return type.budgeted;
+    }
+
+    @Override
+    public Instance bind(Maze maze) {
+        AIEngine engine = new AIEngine(maze);
+        return (source, target, path) -> engine.findPath(type, source, target, path);
+    }
+
+    public static final class Bfs extends BuiltinPathfinder {
+        public Bfs() { super(AlgorithmType.BFS); }
+    }
+
+    public static final class Dfs extends BuiltinPathfinder {
+        public Dfs() { super(AlgorithmType.DFS); }
+    }
+
+    public static final class Greedy extends BuiltinPathfinder {
+        public Greedy() { super(AlgorithmType.GREEDY); }
+    }
+
+    public static final class AStar extends BuiltinPathfinder {
+        public AStar() { super(AlgorithmType.ASTAR); }
+    }
+
+    public static final class Jps extends BuiltinPathfinder {
+        public Jps() { super(AlgorithmType.JPS); }
+    }
+
+    public static final class Bidirectional extends BuiltinPathfinder {
+        public Bidirectional() { super(AlgorithmType.BIDIRECTIONAL); }
+    }
+
+    public static final class Hpa extends BuiltinPathfinder {
+        public Hpa() { super(AlgorithmType.HPA); }
+    }
+
+    public static final class Dnc extends BuiltinPathfinder {
+        public Dnc() { super(AlgorithmType.DNC); }
+    }
+
+    public static final class Gradient extends BuiltinPathfinder {
+        public Gradient() { super(AlgorithmType.GRADIENT); }
+    }
+
+    public static final class Corridor extends BuiltinPathfinder {
+        public Corridor() { super(AlgorithmType.CORRIDOR); }
+    }
+
+    public static final class Auto extends BuiltinPathfinder {
+        public Auto() { super(AlgorithmType.AUTO); }
+    }
+
+    public static final class Orienteering extends BuiltinPathfinder {
+        public Orienteering() { super(AlgorithmType.ORIENTEERING); }
+    }
+
+    public static final class Adversarial extends BuiltinPathfinder {
+        public Adversarial() { super(AlgorithmType.ADVERSARIAL); }
+    }
+
+    public static final class Mcts extends BuiltinPathfinder {
+        public Mcts() { super(AlgorithmType.MCTS); }
+    }
+}
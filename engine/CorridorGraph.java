@@ -0,0 +1,349 @@
+package engine;
+
+import java.util.Arrays;
+import model.Maze;
+
+// The maze with its corridors collapsed: nodes are junctions, dead ends
+// and gem cells (every open cell without exactly two open neighbours,
+// plus the gems), and each edge is a corridor of two-neighbour cells
+// between them, weighted by its length. Dijkstra runs on the nodes only;
+// a corridor is walked cell by cell only when a path is expanded, and
+// firstStep() does not expand at all.
+//
+// A search from or to a corridor cell splits that corridor with a
+// temporary node. A gem that is collected on a corridor cell merges its
+// two edges back into one; a gem put back splits it again. Changed walls
+// (restoreState can bring back walls) rebuild the graph. Changes are
+// queued by the cell listener and applied on the next search.
+final class CorridorGraph implements Maze.CellListener {
+
+    private static final int NONE = -1;
+    private static final int[] DX = SearchContext.DX;
+    private static final int[] DY = SearchContext.DY;
+    private static final int[] BACK = {1, 0, 3, 2};
+
+    private final Maze maze;
+    private final int size;
+    private final int[] nodeId;       // cell -> node, NONE for corridor cells and walls
+    private final boolean[] wall;     // walls when the graph was built
+
+    // Per node: its cell, and per direction the node at the other end of
+    // the corridor and the corridor's length (edgeTo NONE for no edge)
+    private int[] nodeCell = new int[0];
+    private int[] edgeTo = new int[0];
+    private int[] edgeLen = new int[0];
+    private int nodeCount;
+    private int[] free = new int[16];
+    private int freeCount;
+    private boolean built;
+
+    // Result of walk()
+    private int walkEnd, walkLen, walkArrive;
+
+    // Source and target cells a search turned into nodes, and a path's
+    // node chain
+    private boolean pinnedSource, pinnedTarget;
+    private int[] chain = new int[16];
+
+    // Dijkstra state per node, valid where stamp == epoch
+    private int[] stamp = new int[0];
+    private int[] dist = new int[0];
+    private int[] pred = new int[0];
+    private byte[] predDir = new byte[0];
+    private byte[] firstDir = new byte[0];
+    private IndexedMinHeap heap = new IndexedMinHeap(0);
+    private int epoch;
+
+    private int[] dirty = new int[16];
+    private int dirtyCount;
+    private final boolean[] isDirty;
+
+    CorridorGraph(Maze maze) {
+        this.maze = maze;
+        this.size = maze.size;
+        this.nodeId = new int[size * size];
+        this.wall = new boolean[size * size];
+        this.isDirty = new boolean[size * size];
+        maze.addCellListener(this);
+    }
+
+    void shutdown() {
+        maze.removeCellListener(this);
+    }
+
+    @Override
+    public synchronized void cellChanged(int x, int y) {
+        int cell = x * size + y;
+        if (isDirty[cell]) return;
+        isDirty[cell] = true;
+        if (dirtyCount == dirty.length) dirty = Arrays.copyOf(dirty, dirtyCount * 2);
+        dirty[dirtyCount++] = cell;
+    }
+
+    int nodes() {
+        return nodeCount - freeCount;
+    }
+
+    // ================= Search =================
+    // The cell to step to from source on a shortest path to target, or -1
+    synchronized int firstStep(int source, int target) {
+        if (source == target || !dijkstra(source, target)) return -1;
+        int d = firstDir[nodeId[target]];
+        int next = (source / size + DX[d]) * size + source % size + DY[d];
+        release(source, target);
+        return next;
+    }
+
+    // Writes a shortest path, source first, into out and returns its
+    // length in cells; 0 when there is none
+    synchronized int path(int source, int target, int[] out) {
+        if (source == target) {
+            if (!open(source)) return 0;
+            out[0] = source;
+            return 1;
+        }
+        if (!dijkstra(source, target)) return 0;
+
+        // Node chain back from the target, then each corridor walked forward
+        int hops = 0;
+        for (int n = nodeId[target]; n != nodeId[source]; n = pred[n]) hops++;
+        if (chain.length <= hops) chain = new int[hops + 1];
+        for (int k = hops, n = nodeId[target]; k >= 0; k--, n = pred[n]) chain[k] = n;
+
+        int len = 0;
+        out[len++] = source;
+        for (int h = 1; h <= hops; h++) {
+            int to = nodeCell[chain[h]];
+            int prev = nodeCell[chain[h - 1]];
+            int cur = step(prev, predDir[chain[h]]);
+            while (true) {
+                out[len++] = cur;
+                if (cur == to) break;
+                int nxt = corridorNext(cur, prev);
+                prev = cur;
+                cur = nxt;
+            }
+        }
+        release(source, target);
+        return len;
+    }
+
+    // Pins source and target as nodes and runs Dijkstra until the target
+    // is settled; false (with nothing left pinned) when it is not reachable
+    private boolean dijkstra(int source, int target) {
+        update();
+        if (!open(source) || !open(target)) return false;
+        pinnedSource = pin(source);
+        pinnedTarget = pin(target);
+        int s = nodeId[source], t = nodeId[target];
+
+        if (++epoch == 0) {
+            Arrays.fill(stamp, 0);
+            epoch = 1;
+        }
+        heap.clear();
+        stamp[s] = epoch;
+        dist[s] = 0;
+        pred[s] = NONE;
+        heap.offer(s, 0);
+
+        while (!heap.isEmpty()) {
+            int n = heap.poll();
+            if (n == t) return true;
+            for (int d = 0; d < 4; d++) {
+                int to = edgeTo[n * 4 + d];
+                if (to == NONE) continue;
+                int nd = dist[n] + edgeLen[n * 4 + d];
+                if (stamp[to] == epoch && dist[to] <= nd) continue;
+                stamp[to] = epoch;
+                dist[to] = nd;
+                pred[to] = n;
+                predDir[to] = (byte) d;
+                firstDir[to] = n == s ? (byte) d : firstDir[n];
+                heap.offer(to, nd);
+            }
+        }
+        release(source, target);
+        return false;
+    }
+
+    // Makes the cell a node for one search; true if it was not one
+    private boolean pin(int cell) {
+        if (nodeId[cell] != NONE) return false;
+        addNode(cell);
+        return true;
+    }
+
+    // Undoes pin(), last pinned first
+    private void release(int source, int target) {
+        if (pinnedTarget) removeNode(target);
+        if (pinnedSource) removeNode(source);
+        pinnedSource = pinnedTarget = false;
+    }
+
+    void resetStats() {
+        heap.resetStats();
+    }
+
+    void addStats(MoveStats stats) {
+        stats.nodesExpanded += heap.polls;
+        stats.queuePeak = Math.max(stats.queuePeak, heap.peak);
+    }
+
+    // ================= Maintenance =================
+    private synchronized void update() {
+        if (dirtyCount == 0 && built) return;
+        boolean wallsMoved = false;
+        for (int k = 0; k < dirtyCount && !wallsMoved; k++) {
+            wallsMoved = wall[dirty[k]] == open(dirty[k]);
+        }
+        if (!built || wallsMoved) {
+            build();
+        } else {
+            for (int k = 0; k < dirtyCount; k++) {
+                int cell = dirty[k];
+                boolean node = nodeId[cell] != NONE;
+                if (node && !needsNode(cell)) removeNode(cell);
+                else if (!node && needsNode(cell)) addNode(cell);
+            }
+        }
+        for (int k = 0; k < dirtyCount; k++) isDirty[dirty[k]] = false;
+        dirtyCount = 0;
+    }
+
+    private void build() {
+        Arrays.fill(nodeId, NONE);
+        nodeCount = 0;
+        freeCount = 0;
+        int cells = size * size;
+        for (int cell = 0; cell < cells; cell++) {
+            wall[cell] = !open(cell);
+            if (!wall[cell] && needsNode(cell)) newNode(cell);
+        }
+        for (int n = 0; n < nodeCount; n++) {
+            for (int d = 0; d < 4; d++) {
+                if (edgeTo[n * 4 + d] == NONE && step(nodeCell[n], d) >= 0) link(n, d);
+            }
+        }
+        built = true;
+    }
+
+    private boolean open(int cell) {
+        return maze.valid(cell / size, cell % size);
+    }
+
+    private boolean needsNode(int cell) {
+        int x = cell / size, y = cell % size;
+        return maze.hasCash(x, y) || degree(cell) != 2;
+    }
+
+    private int degree(int cell) {
+        int deg = 0;
+        for (int d = 0; d < 4; d++) if (step(cell, d) >= 0) deg++;
+        return deg;
+    }
+
+    // The open neighbour in direction d, or -1
+    private int step(int cell, int d) {
+        int nx = cell / size + DX[d], ny = cell % size + DY[d];
+        return maze.open(nx, ny) ? nx * size + ny : -1;
+    }
+
+    // The other open neighbour of a corridor cell
+    private int corridorNext(int cell, int prev) {
+        for (int d = 0; d < 4; d++) {
+            int n = step(cell, d);
+            if (n >= 0 && n != prev) return n;
+        }
+        return prev;
+    }
+
+    // Follows the corridor leaving cell in direction d up to the next node
+    private void walk(int cell, int d) {
+        int prev = cell;
+        int cur = step(cell, d);
+        int arrive = d;
+        int len = 1;
+        while (nodeId[cur] == NONE && cur != cell) {
+            int nxt = corridorNext(cur, prev);
+            arrive = direction(cur, nxt);
+            prev = cur;
+            cur = nxt;
+            len++;
+        }
+        walkEnd = cur;
+        walkLen = len;
+        walkArrive = arrive;
+    }
+
+    private int direction(int from, int to) {
+        int diff = to - from;
+        return diff == -size ? 0 : diff == size ? 1 : diff == -1 ? 2 : 3;
+    }
+
+    // Sets the edge leaving node n in direction d, and its reverse
+    private void link(int n, int d) {
+        walk(nodeCell[n], d);
+        int end = nodeId[walkEnd];
+        edgeTo[n * 4 + d] = end;
+        edgeLen[n * 4 + d] = walkLen;
+        int back = BACK[walkArrive];
+        edgeTo[end * 4 + back] = n;
+        edgeLen[end * 4 + back] = walkLen;
+    }
+
+    // Splits the corridor through cell
+    private void addNode(int cell) {
+        int n = newNode(cell);
+        for (int d = 0; d < 4; d++) {
+            if (step(cell, d) >= 0) link(n, d);
+        }
+    }
+
+    // Merges the two corridors meeting at a two-neighbour cell
+    private void removeNode(int cell) {
+        int n = nodeId[cell];
+        int a = NONE, aDir = 0;
+        for (int d = 0; d < 4 && a == NONE; d++) {
+            if (edgeTo[n * 4 + d] != NONE) {
+                walk(cell, d);
+                a = nodeId[walkEnd];
+                aDir = BACK[walkArrive];
+            }
+        }
+        nodeId[cell] = NONE;
+        Arrays.fill(edgeTo, n * 4, n * 4 + 4, NONE);
+        if (freeCount == free.length) free = Arrays.copyOf(free, freeCount * 2);
+        free[freeCount++] = n;
+        if (a != NONE && a != n) link(a, aDir);
+    }
+
+    private int newNode(int cell) {
+        int n;
+        if (freeCount > 0) {
+            n = free[--freeCount];
+        } else {
+            n = nodeCount++;
+            if (n >= nodeCell.length) grow(Math.max(16, nodeCell.length * 2));
+        }
+        nodeId[cell] = n;
+        nodeCell[n] = cell;
+        Arrays.fill(edgeTo, n * 4, n * 4 + 4, NONE);
+        return n;
+    }
+
+    private void grow(int capacity) {
+        int old = nodeCell.length;
+        nodeCell = Arrays.copyOf(nodeCell, capacity);
+        edgeTo = Arrays.copyOf(edgeTo, capacity * 4);
+        Arrays.fill(edgeTo, old * 4, capacity * 4, NONE);
+        edgeLen = Arrays.copyOf(edgeLen, capacity * 4);
+        stamp = new int[capacity];
+        dist = new int[capacity];
+        pred = new int[capacity];
+        predDir = new byte[capacity];
+        firstDir = new byte[capacity];
+        heap = new IndexedMinHeap(capacity);
+        epoch = 0;
+    }
+}
@@ -0,0 +1,266 @@
+package engine;
+
+import java.util.Arrays;
+import model.Maze;
+import util.Config;
+
+// Distance from every open cell to the nearest gem worth at least
+// Config.GRADIENT_MIN_GEM_VALUE (a "Dijkstra map" with the gems as
+// goals). Stepping to a neighbour one closer is then an O(1) greedy move
+// that is on a shortest path to a gem, for any number of players
+// reading the same map.
+//
+// Walls normally stay put, only gems change, so the map is built with
+// one multi-source BFS and then repaired. Each cell remembers which gem
+// its distance came from; when that gem goes, only the cells labelled
+// with it are cleared and refilled from the untouched cells around
+// them. A new gem (after a reset) floods out only as far as it is the
+// nearer one. A wall that changes (restoreState puts back walls that
+// the connectivity fix cleared) means a full rebuild. Changes are queued
+// by the cell listener and applied on the next read, so they happen on
+// the reading thread.
+public class DistanceMap implements Maze.CellListener {
+
+    public static final int UNREACHABLE = -1;
+
+    private static final int INF = Integer.MAX_VALUE;
+    private static final int NONE = -1;
+
+    private final Maze maze;
+    private final int size;
+    private final int[] dist;
+    private final int[] nearest;     // goal the distance came from, NONE while cleared
+    private final boolean[] goal;    // cells the map currently counts as goals
+    private final boolean[] wall;    // walls when the map was built
+    private final int[] queue;
+    private final IndexedMinHeap heap;
+    private boolean built;
+
+    // Cells changed since the last read
+    private int[] dirty = new int[16];
+    private int dirtyCount;
+    private final boolean[] isDirty;
+
+    // Cells dequeued since resetStats()
+    private long expanded;
+
+    public DistanceMap(Maze maze) {
+        this.maze = maze;
+        this.size = maze.size;
+        int cells = size * size;
+        this.dist = new int[cells];
+        this.nearest = new int[cells];
+        this.goal = new boolean[cells];
+        this.wall = new boolean[cells];
+        this.queue = new int[cells];
+        this.heap = new IndexedMinHeap(cells);
+        this.isDirty = new boolean[cells];
+        maze.addCellListener(this);
+    }
+
+    public void shutdown() {
+        maze.removeCellListener(this);
+    }
+
+    @Override
+    public synchronized void cellChanged(int x, int y) {
+        int cell = x * size + y;
+        if (isDirty[cell]) return;
+        isDirty[cell] = true;
+        if (dirtyCount == dirty.length) dirty = Arrays.copyOf(dirty, dirtyCount * 2);
+        dirty[dirtyCount++] = cell;
+    }
+
+    // ================= Reading =================
+    // Steps to the nearest goal from cell (x * size + y), or UNREACHABLE
+    public int distance(int cell) {
+        update();
+        return dist[cell] == INF ? UNREACHABLE : dist[cell];
+    }
+
+    // The goal cell that distance leads to, or -1
+    public int nearestGoal(int cell) {
+        update();
+        return dist[cell] == INF ? -1 : nearest[cell];
+    }
+
+    // A neighbour one step closer to a goal, picking up the richest gem
+    // among equally good ones; -1 on a goal or with none reachable
+    public int next(int cell) {
+        update();
+        int d = dist[cell];
+        if (d == INF || d == 0) return -1;
+        int x = cell / size, y = cell % size;
+        int best = -1, bestCash = -1;
+        for (int k = 0; k < 4; k++) {
+            int nx = x + SearchContext.DX[k], ny = y + SearchContext.DY[k];
+            if (!maze.open(nx, ny) || dist[nx * size + ny] != d - 1) continue;
+            int cash = maze.cashAt(nx, ny);
+            if (cash > bestCash) {
+                best = nx * size + ny;
+                bestCash = cash;
+            }
+        }
+        return best;
+    }
+
+    void resetStats() {
+        expanded = 0;
+        heap.resetStats();
+    }
+
+    void addStats(MoveStats stats) {
+        stats.nodesExpanded += expanded + heap.polls;
+        stats.queuePeak = Math.max(stats.queuePeak, heap.peak);
+    }
+
+    // ================= Maintenance =================
+    private boolean isGoal(int cell) {
+        int x = cell / size, y = cell % size;
+        return maze.hasCash(x, y) && maze.cashAt(x, y) >= Config.GRADIENT_MIN_GEM_VALUE;
+    }
+
+    private synchronized void update() {
+        if (dirtyCount == 0 && built) return;
+        boolean wallsMoved = false;
+        for (int k = 0; k < dirtyCount && !wallsMoved; k++) {
+            int cell = dirty[k];
+            wallsMoved = wall[cell] == maze.valid(cell / size, cell % size);
+        }
+        if (!built || wallsMoved) {
+            build();
+            return;
+        }
+
+        // Gems gone: clear every cell labelled with one, then refill
+        int cleared = 0;
+        for (int k = 0; k < dirtyCount; k++) {
+            int cell = dirty[k];
+            if (goal[cell] && !isGoal(cell)) {
+                goal[cell] = false;
+                cleared = clearRegion(cell, cleared);
+            }
+        }
+        if (cleared > 0) refill(cleared);
+
+        // Gems back: flood from them while they are the nearer goal
+        int tail = 0;
+        for (int k = 0; k < dirtyCount; k++) {
+            int cell = dirty[k];
+            if (!goal[cell] && isGoal(cell)) {
+                goal[cell] = true;
+                dist[cell] = 0;
+                nearest[cell] = cell;
+                queue[tail++] = cell;
+            }
+        }
+        if (tail > 0) flood(tail);
+
+        for (int k = 0; k < dirtyCount; k++) isDirty[dirty[k]] = false;
+        dirtyCount = 0;
+    }
+
+    // One multi-source BFS from every goal
+    private void build() {
+        Arrays.fill(dist, INF);
+        Arrays.fill(nearest, NONE);
+        int tail = 0;
+        for (int cell = 0; cell < dist.length; cell++) {
+            wall[cell] = !maze.valid(cell / size, cell % size);
+            goal[cell] = isGoal(cell);
+            if (goal[cell]) {
+                dist[cell] = 0;
+                nearest[cell] = cell;
+                queue[tail++] = cell;
+            }
+        }
+        flood(tail);
+        for (int k = 0; k < dirtyCount; k++) isDirty[dirty[k]] = false;
+        dirtyCount = 0;
+        built = true;
+    }
+
+    // BFS from the queued cells, lowering distances it can improve
+    private void flood(int tail) {
+        int head = 0;
+        while (head < tail) {
+            int cell = queue[head++];
+            expanded++;
+            int next = dist[cell] + 1;
+            int x = cell / size, y = cell % size;
+            for (int k = 0; k < 4; k++) {
+                int nx = x + SearchContext.DX[k], ny = y + SearchContext.DY[k];
+                if (!maze.open(nx, ny)) continue;
+                int n = nx * size + ny;
+                if (next < dist[n]) {
+                    dist[n] = next;
+                    nearest[n] = nearest[cell];
+                    queue[tail++] = n;
+                }
+            }
+        }
+    }
+
+    // Clears the cells whose distance came from the goal, appending them
+    // to queue[] after the first count entries. They form one connected
+    // region around it, since each got its label from a neighbour.
+    private int clearRegion(int goalCell, int count) {
+        int head = count;
+        dist[goalCell] = INF;
+        nearest[goalCell] = NONE;
+        queue[count++] = goalCell;
+        while (head < count) {
+            int cell = queue[head++];
+            expanded++;
+            int x = cell / size, y = cell % size;
+            for (int k = 0; k < 4; k++) {
+                int nx = x + SearchContext.DX[k], ny = y + SearchContext.DY[k];
+                if (!maze.open(nx, ny)) continue;
+                int n = nx * size + ny;
+                if (nearest[n] == goalCell) {
+                    dist[n] = INF;
+                    nearest[n] = NONE;
+                    queue[count++] = n;
+                }
+            }
+        }
+        return count;
+    }
+
+    // Dijkstra over the cleared cells, seeded from the best untouched
+    // neighbour of each. Cells outside keep exact distances to goals that
+    // still exist, so nothing outside can improve.
+    private void refill(int count) {
+        heap.clear();
+        for (int k = 0; k < count; k++) {
+            int cell = queue[k];
+            int x = cell / size, y = cell % size;
+            for (int d = 0; d < 4; d++) {
+                int nx = x + SearchContext.DX[d], ny = y + SearchContext.DY[d];
+                if (!maze.open(nx, ny)) continue;
+                int n = nx * size + ny;
+                if (nearest[n] != NONE && dist[n] + 1 < dist[cell]) {
+                    dist[cell] = dist[n] + 1;
+                    nearest[cell] = nearest[n];
+                }
+            }
+            if (dist[cell] != INF) heap.offer(cell, dist[cell]);
+        }
+
+        while (!heap.isEmpty()) {
+            int cell = heap.poll();
+            int next = dist[cell] + 1;
+            int x = cell / size, y = cell % size;
+            for (int d = 0; d < 4; d++) {
+                int nx = x + SearchContext.DX[d], ny = y + SearchContext.DY[d];
+                if (!maze.open(nx, ny)) continue;
+                int n = nx * size + ny;
+                if (next < dist[n]) {
+                    dist[n] = next;
+                    nearest[n] = nearest[cell];
+                    heap.offer(n, next);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package engine;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import model.Maze;
+import util.Config;
+
+// Recursive divide & conquer pathfinding on a ForkJoinPool.
+//
+// Divide  → pick an open cell near the midpoint of source and target
+// Conquer → solve source → split and split → target, in parallel when the
+//           segment is long enough to be worth a fork
+// Combine → concatenate the two halves
+//
+// Segments shorter than Config.DNC_LEAF_DISTANCE are solved with bfs. A
+// segment whose halves fail falls back to a plain bfs over the whole
+// segment. The bfs runs in a window around the segment's source that
+// holds everything Config.BFS_MAX_DEPTH pops can reach, so its buffers
+// are the same size on any board; they are borrowed from a pool that
+// only grows to the number of leaves running at once.
+final class DivideAndConquerSearch {
+
+    private static final int[] EMPTY = new int[0];
+
+    private final Maze maze;
+    private final int size;
+    private final Queue<Leaf> freeLeaves = new ConcurrentLinkedQueue<>();
+    private final Queue<Leaf> allLeaves = new ConcurrentLinkedQueue<>();
+
+    DivideAndConquerSearch(Maze maze) {
+        this.maze = maze;
+        this.size = maze.size;
+    }
+
+    // Path as cell indices, source first; empty when no path was found
+    int[] search(int source, int target) {
+        return ForkJoinPool.commonPool().invoke(new Segment(source, target));
+    }
+
+    // Leaves run on pool threads; their counters are summed per move
+    void resetStats() {
+        for (Leaf leaf : allLeaves) leaf.resetStats();
+    }
+
+    void addStats(MoveStats stats) {
+        for (Leaf leaf : allLeaves) leaf.addStats(stats);
+    }
+
+    // True if a leaf ran out of budget this move. A failed leaf is retried
+    // as a wider one, so only the caller knows whether it cost the path.
+    boolean budgetHit() {
+        for (Leaf leaf : allLeaves) {
+            if (leaf.budgetHit) return true;
+        }
+        return false;
+    }
+
+    private final class Segment extends RecursiveTask<int[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final int from, to;
+
+        Segment(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected int[] compute() {
+            int fx = from / size, fy = from % size;
+            int tx = to / size, ty = to % size;
+            int dist = Math.abs(fx - tx) + Math.abs(fy - ty);
+
+            if (dist <= Config.DNC_LEAF_DISTANCE) return leaf(from, to);
+
+            int split = splitCell((fx + tx) / 2, (fy + ty) / 2, Math.max(1, dist / 4));
+            if (split < 0) return leaf(from, to);
+
+            Segment first = new Segment(from, split);
+            Segment second = new Segment(split, to);
+            int[] a, b;
+            if (dist >= Config.DNC_FORK_DISTANCE) {
+                first.fork();
+                b = second.compute();
+                a = first.join();
+            } else {
+                a = first.compute();
+                b = second.compute();
+            }
+
+            if (a.length == 0 || b.length == 0) return leaf(from, to);
+
+            // Merge, dropping the split cell that ends the first half
+            int[] merged = Arrays.copyOf(a, a.length + b.length - 1);
+            System.arraycopy(b, 0, merged, a.length - 1, b.length);
+            return merged;
+        }
+
+        // Nearest open cell to (mx, my) within radius, other than the ends
+        private int splitCell(int mx, int my, int radius) {
+            for (int r = 0; r <= radius; r++) {
+                for (int ox = -r; ox <= r; ox++) {
+                    int oy = r - Math.abs(ox);
+                    int cell = candidate(mx + ox, my + oy);
+                    if (cell >= 0) return cell;
+                    if (oy != 0) {
+                        cell = candidate(mx + ox, my - oy);
+                        if (cell >= 0) return cell;
+                    }
+                }
+            }
+            return -1;
+        }
+
+        private int candidate(int x, int y) {
+            if (!maze.valid(x, y)) return -1;
+            int cell = x * size + y;
+            return cell == from || cell == to ? -1 : cell;
+        }
+    }
+
+    private int[] leaf(int from, int to) {
+        Leaf leaf = freeLeaves.poll();
+        if (leaf == null) {
+            leaf = new Leaf(Math.min(size, 2 * Config.BFS_MAX_DEPTH + 3));
+            allLeaves.add(leaf);
+        }
+        try {
+            return leaf.bfs(from, to);
+        } finally {
+            freeLeaves.add(leaf);
+        }
+    }
+
+    // ================= Leaf Search =================
+    // AIEngine.bfsSearch (same budget, same neighbour order, so the same
+    // path) on a side x side window of the board centred on the source
+    // where the board allows. Cells pushed within the budget are at most
+    // BFS_MAX_DEPTH + 1 steps from the source, so they all fit.
+    private final class Leaf {
+        private final int side;
+        private final int[] stamp;
+        private final byte[] parentDir;
+        private final int[] queue;
+        private int epoch;
+        private int x0, y0;
+
+        private long expanded;
+        private int queuePeak;
+        private boolean budgetHit;
+
+        Leaf(int side) {
+            this.side = side;
+            this.stamp = new int[side * side];
+            this.parentDir = new byte[side * side];
+            this.queue = new int[side * side];
+        }
+
+        int[] bfs(int from, int to) {
+            if (++epoch == Integer.MAX_VALUE) {
+                Arrays.fill(stamp, 0);
+                epoch = 1;
+            }
+            int half = side / 2;
+            x0 = Math.max(0, Math.min(size - side, from / size - half));
+            y0 = Math.max(0, Math.min(size - side, from % size - half));
+
+            int head = 0, tail = 0;
+            stamp[local(from)] = epoch;
+            parentDir[local(from)] = (byte) SearchContext.NO_PARENT;
+            queue[tail++] = from;
+            int depth = 0;
+            while (head < tail && depth < Config.BFS_MAX_DEPTH) {
+                int cur = queue[head++];
+                expanded++;
+                if (cur == to) return trace(from, to);
+                int cx = cur / size, cy = cur % size;
+                for (int d = 0; d < 4; d++) {
+                    int nx = cx + SearchContext.DX[d], ny = cy + SearchContext.DY[d];
+                    if (!maze.open(nx, ny) || !inside(nx, ny)) continue;
+                    int next = nx * size + ny;
+                    int l = local(next);
+                    if (stamp[l] == epoch) continue;
+                    stamp[l] = epoch;
+                    parentDir[l] = (byte) d;
+                    queue[tail++] = next;
+                }
+                queuePeak = Math.max(queuePeak, tail - head);
+                depth++;
+            }
+            if (head < tail) budgetHit = true;
+            return EMPTY;
+        }
+
+        private boolean inside(int x, int y) {
+            return x >= x0 && y >= y0 && x < x0 + side && y < y0 + side;
+        }
+
+        private int local(int cell) {
+            return (cell / size - x0) * side + cell % size - y0;
+        }
+
+        private int[] trace(int from, int to) {
+            int len = 1;
+            for (int cur = to; cur != from; cur = back(cur)) len++;
+            int[] path = new int[len];
+            int cur = to;
+            for (int k = len - 1; k > 0; k--) {
+                path[k] = cur;
+                cur = back(cur);
+            }
+            path[0] = from;
+            return path;
+        }
+
+        private int back(int cell) {
+            int d = parentDir[local(cell)];
+            return (cell / size - SearchContext.DX[d]) * size + cell % size - SearchContext.DY[d];
+        }
+
+        void resetStats() {
+            expanded = 0;
+            queuePeak = 0;
+            budgetHit = false;
+        }
+
+        void addStats(MoveStats stats) {
+            stats.nodesExpanded += expanded;
+            stats.queuePeak = Math.max(stats.queuePeak, queuePeak);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package engine;
+
+import model.Maze;
+import model.Player;
+import model.Zobrist;
+
+// Compact two-player snapshot of the game for the searching CPUs.
+//
+// Turn order follows GameUI: the human moves and spends one of the
+// remaining moves, then the CPU answers if any are left. Gems live in a
+// flat cash array so moves can be played and taken back without touching
+// the Maze (and without waking its listeners). hash is the Zobrist hash
+// of everything the rest of the game depends on (gems left, both
+// positions, moves left and whose turn it is), updated by play and undo.
+final class GameState {
+
+    final int size;
+    final int cells;
+    final boolean[] open;
+    final int[] cash;
+    final int[] gemCells;
+    int gemCount;
+
+    int cpu, human;
+    int cpuScore, humanScore;
+    int movesLeft;
+    int gemsLeft;
+    boolean cpuToMove;
+    long hash;
+
+    GameState(int size) {
+        this.size = size;
+        this.cells = size * size;
+        this.open = new boolean[cells];
+        this.cash = new int[cells];
+        this.gemCells = new int[cells];
+    }
+
+    // Snapshot with the CPU to move; scores are kept relative to now
+    void load(Maze maze, Player cpuPlayer, Player humanPlayer, int movesLeft) {
+        gemCount = 0;
+        gemsLeft = 0;
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                int cell = i * size + j;
+                open[cell] = maze.valid(i, j);
+                cash[cell] = maze.cashAt(i, j);
+                if (cash[cell] > 0) {
+                    gemCells[gemCount++] = cell;
+                    gemsLeft++;
+                }
+            }
+        }
+        this.cpu = cpuPlayer.x * size + cpuPlayer.y;
+        this.human = humanPlayer.x * size + humanPlayer.y;
+        this.cpuScore = 0;
+        this.humanScore = 0;
+        this.movesLeft = movesLeft;
+        this.cpuToMove = true;
+        this.hash = maze.getGemHash() ^ Zobrist.cpu(cpu) ^ Zobrist.human(human)
+                ^ Zobrist.movesLeft(movesLeft) ^ Zobrist.CPU_TO_MOVE;
+    }
+
+    // Walls and the gem list are shared; only the mutable board is copied
+    void copyFrom(GameState other) {
+        System.arraycopy(other.open, 0, open, 0, cells);
+        System.arraycopy(other.cash, 0, cash, 0, cells);
+        System.arraycopy(other.gemCells, 0, gemCells, 0, other.gemCount);
+        gemCount = other.gemCount;
+        cpu = other.cpu;
+        human = other.human;
+        cpuScore = other.cpuScore;
+        humanScore = other.humanScore;
+        movesLeft = other.movesLeft;
+        gemsLeft = other.gemsLeft;
+        cpuToMove = other.cpuToMove;
+        hash = other.hash;
+    }
+
+    boolean isOver() {
+        return movesLeft <= 0 || gemsLeft == 0;
+    }
+
+    int mover() {
+        return cpuToMove ? cpu : human;
+    }
+
+    // ================= Moves =================
+    // Fills out with the open neighbours of the side to move; a boxed-in
+    // player stays where it is
+    int moves(int[] out) {
+        int from = mover();
+        int x = from / size, y = from % size;
+        int n = 0;
+        if (x > 0 && open[from - size]) out[n++] = from - size;
+        if (x < size - 1 && open[from + size]) out[n++] = from + size;
+        if (y > 0 && open[from - 1]) out[n++] = from - 1;
+        if (y < size - 1 && open[from + 1]) out[n++] = from + 1;
+        if (n == 0) out[n++] = from;
+        return n;
+    }
+
+    // Plays the side to move onto cell to and returns the cash taken,
+    // which undo() needs together with the cell the mover came from
+    int play(int to) {
+        int taken = cash[to];
+        cash[to] = 0;
+        if (taken > 0) {
+            gemsLeft--;
+            hash ^= Zobrist.gem(to);
+        }
+        if (cpuToMove) {
+            hash ^= Zobrist.cpu(cpu) ^ Zobrist.cpu(to);
+            cpu = to;
+            cpuScore += taken;
+        } else {
+            hash ^= Zobrist.human(human) ^ Zobrist.human(to)
+                    ^ Zobrist.movesLeft(movesLeft) ^ Zobrist.movesLeft(movesLeft - 1);
+            human = to;
+            humanScore += taken;
+            movesLeft--;
+        }
+        cpuToMove = !cpuToMove;
+        hash ^= Zobrist.CPU_TO_MOVE;
+        return taken;
+    }
+
+    void undo(int from, int taken) {
+        cpuToMove = !cpuToMove;
+        hash ^= Zobrist.CPU_TO_MOVE;
+        int to = mover();
+        cash[to] = taken;
+        if (taken > 0) {
+            gemsLeft++;
+            hash ^= Zobrist.gem(to);
+        }
+        if (cpuToMove) {
+            hash ^= Zobrist.cpu(to) ^ Zobrist.cpu(from);
+            cpu = from;
+            cpuScore -= taken;
+        } else {
+            hash ^= Zobrist.human(to) ^ Zobrist.human(from)
+                    ^ Zobrist.movesLeft(movesLeft) ^ Zobrist.movesLeft(movesLeft + 1);
+            human = from;
+            humanScore -= taken;
+            movesLeft++;
+        }
+    }
+
+    // ================= Evaluation =================
+    // Score lead from the CPU's side, plus how well each player is placed
+    // to grab the next gem (value over Manhattan distance)
+    int evaluate() {
+        return 4 * (cpuScore - humanScore) + reach(cpu) - reach(human);
+    }
+
+    // The part of the side to move's evaluation already banked since
+    // load(); search values minus this depend on the state alone
+    int lead() {
+        int lead = 4 * (cpuScore - humanScore);
+        return cpuToMove ? lead : -lead;
+    }
+
+    private int reach(int from) {
+        int fx = from / size, fy = from % size;
+        int best = 0;
+        for (int g = 0; g < gemCount; g++) {
+            int cell = gemCells[g];
+            if (cash[cell] == 0) continue;
+            int d = Math.abs(cell / size - fx) + Math.abs(cell % size - fy);
+            best = Math.max(best, 4 * cash[cell] / (d + 1));
+        }
+        return best;
+    }
+}
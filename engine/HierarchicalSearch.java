@@ -0,0 +1,441 @@
+package engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import model.Maze;
+import util.Config;
+
+// Hierarchical pathfinding (HPA*) for boards far larger than HARD.
+//
+// The grid is cut into square clusters of Config.HPA_CLUSTER_SIZE cells.
+// Every run of open cells along the border of two neighbouring clusters
+// gets one entrance: a pair of abstract nodes, one on each side, joined
+// by an edge of cost 1. Inside each cluster the entrances are joined by
+// edges holding their in-cluster BFS distance.
+//
+// A query links the source and target to the entrances of their own
+// clusters, runs A* over this small graph and then refines every
+// abstract edge back into grid steps with a BFS bounded to one cluster.
+// Paths are near-optimal rather than optimal.
+//
+// The graph listens to the maze. A cell whose passability changes marks
+// its cluster dirty, and only that cluster's borders and the in-cluster
+// edges of it and its neighbours are rebuilt before the next query.
+final class HierarchicalSearch implements Maze.CellListener {
+
+    private final SearchContext ctx;
+    private final Maze maze;
+    private final int size;
+    private final int clusterSize;
+    private final int clustersPerSide;
+
+    private final boolean[] open;
+    private final boolean[] dirty;
+    private boolean anyDirty;
+
+    // Abstract graph
+    private final int[] nodeOf;
+    private final List<HNode> nodes = new ArrayList<>();
+    private int[] freeIds = new int[16];
+    private int freeCount;
+    private final int[][] borderPairs;
+
+    // Abstract A* state, indexed by node id; source and target are the
+    // two ids after the last real node
+    private IndexedMinHeap heap;
+    private int[] g, parent, stamp, targetCost, targetStamp;
+    private int epoch;
+    private int[] sourceTo = new int[16], sourceCost = new int[16];
+    private int sourceEdges;
+
+    private int[] trail = new int[64];
+    private int[] out = new int[256];
+
+    HierarchicalSearch(SearchContext ctx) {
+        this.ctx = ctx;
+        this.maze = ctx.maze;
+        this.size = ctx.size;
+        this.clusterSize = Config.HPA_CLUSTER_SIZE;
+        this.clustersPerSide = (size + clusterSize - 1) / clusterSize;
+
+        int clusters = clustersPerSide * clustersPerSide;
+        this.open = new boolean[ctx.cells];
+        this.dirty = new boolean[clusters];
+        this.nodeOf = new int[ctx.cells];
+        this.borderPairs = new int[clusters * 2][];
+        Arrays.fill(nodeOf, -1);
+
+        for (int i = 0; i < ctx.cells; i++) {
+            open[i] = maze.valid(ctx.row(i), ctx.col(i));
+        }
+        for (int c = 0; c < clusters; c++) {
+            rebuildBorder(c, 0);
+            rebuildBorder(c, 1);
+        }
+        for (int c = 0; c < clusters; c++) {
+            rebuildIntra(c);
+        }
+        maze.addCellListener(this);
+    }
+
+    // Stops following the maze's changes
+    void shutdown() {
+        maze.removeCellListener(this);
+    }
+
+    // ================= Incremental Updates =================
+    @Override
+    public void cellChanged(int x, int y) {
+        int cell = ctx.index(x, y);
+        boolean now = maze.valid(x, y);
+        if (now != open[cell]) {
+            open[cell] = now;
+            dirty[clusterOf(cell)] = true;
+            anyDirty = true;
+        }
+    }
+
+    private void repair() {
+        boolean[] touched = new boolean[dirty.length];
+        for (int c = 0; c < dirty.length; c++) {
+            if (!dirty[c]) continue;
+            int cx = c / clustersPerSide, cy = c % clustersPerSide;
+            rebuildBorder(c, 0);
+            rebuildBorder(c, 1);
+            touched[c] = true;
+            if (cy > 0) {
+                rebuildBorder(c - 1, 0);
+                touched[c - 1] = true;
+            }
+            if (cx > 0) {
+                rebuildBorder(c - clustersPerSide, 1);
+                touched[c - clustersPerSide] = true;
+            }
+            if (cy + 1 < clustersPerSide) touched[c + 1] = true;
+            if (cx + 1 < clustersPerSide) touched[c + clustersPerSide] = true;
+            dirty[c] = false;
+        }
+        for (int c = 0; c < touched.length; c++) {
+            if (touched[c]) rebuildIntra(c);
+        }
+        anyDirty = false;
+    }
+
+    // ================= Graph Construction =================
+    // side 0 is the border with the cluster to the right, 1 the one below
+    private void rebuildBorder(int cluster, int side) {
+        int slot = cluster * 2 + side;
+        int[] old = borderPairs[slot];
+        if (old != null) {
+            for (int k = 0; k < old.length; k += 2) {
+                int a = nodeOf[old[k]], b = nodeOf[old[k + 1]];
+                nodes.get(a).inter.remove(b);
+                nodes.get(b).inter.remove(a);
+                releaseIfIsolated(old[k]);
+                releaseIfIsolated(old[k + 1]);
+            }
+            borderPairs[slot] = null;
+        }
+
+        int cx = cluster / clustersPerSide, cy = cluster % clustersPerSide;
+        if ((side == 0 ? cy : cx) + 1 >= clustersPerSide) return;
+
+        int[] pairs = new int[8];
+        int count = 0;
+        int edge = (side == 0 ? cy + 1 : cx + 1) * clusterSize - 1;
+        int lo = (side == 0 ? cx : cy) * clusterSize;
+        int hi = Math.min(size, lo + clusterSize);
+
+        int runStart = -1;
+        for (int k = lo; k <= hi; k++) {
+            boolean passable = k < hi && open[borderCell(side, edge, k)]
+                    && open[borderCell(side, edge + 1, k)];
+            if (passable && runStart < 0) runStart = k;
+            if (!passable && runStart >= 0) {
+                int mid = (runStart + k - 1) / 2;
+                int a = borderCell(side, edge, mid), b = borderCell(side, edge + 1, mid);
+                if (count + 2 > pairs.length) pairs = Arrays.copyOf(pairs, pairs.length * 2);
+                pairs[count++] = a;
+                pairs[count++] = b;
+                int na = ensureNode(a), nb = ensureNode(b);
+                nodes.get(na).inter.add(nb, 1);
+                nodes.get(nb).inter.add(na, 1);
+                runStart = -1;
+            }
+        }
+        borderPairs[slot] = Arrays.copyOf(pairs, count);
+    }
+
+    private int borderCell(int side, int line, int k) {
+        return side == 0 ? ctx.index(k, line) : ctx.index(line, k);
+    }
+
+    private void rebuildIntra(int cluster) {
+        int x0 = (cluster / clustersPerSide) * clusterSize;
+        int y0 = (cluster % clustersPerSide) * clusterSize;
+        int x1 = Math.min(size, x0 + clusterSize);
+        int y1 = Math.min(size, y0 + clusterSize);
+
+        for (int x = x0; x < x1; x++) {
+            for (int y = y0; y < y1; y++) {
+                int id = nodeOf[ctx.index(x, y)];
+                if (id < 0) continue;
+                HNode u = nodes.get(id);
+                u.intra.clear();
+                localBfs(u.cell, cluster, -1);
+                for (int i = x0; i < x1; i++) {
+                    for (int j = y0; j < y1; j++) {
+                        int cell = ctx.index(i, j);
+                        int v = nodeOf[cell];
+                        if (v >= 0 && v != id && ctx.visited(cell)) {
+                            u.intra.add(v, ctx.dist[cell] - 1);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private int ensureNode(int cell) {
+        if (nodeOf[cell] >= 0) return nodeOf[cell];
+        HNode node = new HNode(cell);
+        int id;
+        if (freeCount > 0) {
+            id = freeIds[--freeCount];
+            nodes.set(id, node);
+        } else {
+            id = nodes.size();
+            nodes.add(node);
+        }
+        nodeOf[cell] = id;
+        return id;
+    }
+
+    private void releaseIfIsolated(int cell) {
+        int id = nodeOf[cell];
+        if (id < 0 || nodes.get(id).inter.count > 0) return;
+        nodes.set(id, null);
+        nodeOf[cell] = -1;
+        if (freeCount == freeIds.length) freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+        freeIds[freeCount++] = id;
+    }
+
+    // ================= Query =================
+    // Fills ctx.path with a refined path, or leaves it empty when the
+    // abstract search fails within Config.BFS_MAX_DEPTH expansions
+    void search(int source, int target) {
+        if (anyDirty) repair();
+        ctx.pathLength = 0;
+
+        int sc = clusterOf(source), tc = clusterOf(target);
+        if (sc == tc) {
+            localBfs(source, sc, target);
+            if (ctx.visited(target)) {
+                ctx.tracePath(target);
+                return;
+            }
+        }
+
+        int n = nodes.size();
+        int src = n, dst = n + 1;
+        prepare(n + 2);
+
+        // Link the target to its cluster's entrances (distances are symmetric)
+        localBfs(target, tc, -1);
+        forEachNodeIn(tc, (id, cell) -> {
+            if (ctx.visited(cell)) {
+                targetStamp[id] = epoch;
+                targetCost[id] = ctx.dist[cell] - 1;
+            }
+        });
+        // ...and the source to its own
+        sourceEdges = 0;
+        localBfs(source, sc, -1);
+        forEachNodeIn(sc, (id, cell) -> {
+            if (ctx.visited(cell)) addSourceEdge(id, ctx.dist[cell] - 1);
+        });
+
+        stamp[src] = epoch;
+        g[src] = 0;
+        parent[src] = -1;
+        heap.offer(src, estimate(source, target));
+        int depth = 0;
+        boolean found = false;
+
+        while (!heap.isEmpty() && depth < Config.BFS_MAX_DEPTH) {
+            int u = heap.poll();
+            if (u == dst) {
+                found = true;
+                break;
+            }
+            if (u == src) {
+                for (int k = 0; k < sourceEdges; k++) relax(u, sourceTo[k], sourceCost[k], target);
+            } else {
+                HNode node = nodes.get(u);
+                for (int k = 0; k < node.inter.count; k++) relax(u, node.inter.to[k], node.inter.cost[k], target);
+                for (int k = 0; k < node.intra.count; k++) relax(u, node.intra.to[k], node.intra.cost[k], target);
+                if (targetStamp[u] == epoch) relax(u, dst, targetCost[u], target);
+            }
+            depth++;
+        }
+        // The abstract search counts towards the move's expansions too
+        ctx.expanded += depth;
+        ctx.queuePeak = Math.max(ctx.queuePeak, heap.peak);
+        if (!found && !heap.isEmpty()) ctx.budgetHit = true;
+        if (found) refine(src, dst, source, target);
+    }
+
+    private void prepare(int capacity) {
+        if (heap == null || g.length < capacity) {
+            int cap = Math.max(capacity, 64) * 2;
+            heap = new IndexedMinHeap(cap);
+            g = new int[cap];
+            parent = new int[cap];
+            stamp = new int[cap];
+            targetCost = new int[cap];
+            targetStamp = new int[cap];
+            epoch = 0;
+        }
+        heap.clear();
+        heap.resetStats();
+        epoch++;
+    }
+
+    private void addSourceEdge(int id, int cost) {
+        if (sourceEdges == sourceTo.length) {
+            sourceTo = Arrays.copyOf(sourceTo, sourceEdges * 2);
+            sourceCost = Arrays.copyOf(sourceCost, sourceEdges * 2);
+        }
+        sourceTo[sourceEdges] = id;
+        sourceCost[sourceEdges++] = cost;
+    }
+
+    private void relax(int u, int v, int cost, int target) {
+        int ng = g[u] + cost;
+        if (stamp[v] == epoch && g[v] <= ng) return;
+        stamp[v] = epoch;
+        g[v] = ng;
+        parent[v] = u;
+        int cell = v < nodes.size() ? nodes.get(v).cell : target;
+        heap.offer(v, ng + estimate(cell, target));
+    }
+
+    private long estimate(int cell, int target) {
+        return Math.abs(ctx.row(cell) - ctx.row(target)) + Math.abs(ctx.col(cell) - ctx.col(target));
+    }
+
+    // ================= Refinement =================
+    private void refine(int src, int dst, int source, int target) {
+        int count = 0;
+        for (int v = dst; v != -1; v = parent[v]) {
+            if (count == trail.length) trail = Arrays.copyOf(trail, count * 2);
+            trail[count++] = v;
+        }
+
+        int len = 0;
+        out[len++] = source;
+        for (int k = count - 2; k >= 0; k--) {
+            int from = out[len - 1];
+            int to = trail[k] == dst ? target : nodes.get(trail[k]).cell;
+            if (from == to) continue;
+
+            localBfs(from, clusterOf(from), to);
+            if (!ctx.visited(to)) {
+                // Entrance edges cross clusters; the cells are adjacent
+                len = append(len, to);
+                continue;
+            }
+            ctx.tracePath(to);
+            for (int i = 1; i < ctx.pathLength; i++) len = append(len, ctx.path[i]);
+        }
+        ctx.setPath(out, len);
+    }
+
+    private int append(int len, int cell) {
+        if (len == out.length) out = Arrays.copyOf(out, len * 2);
+        out[len] = cell;
+        return len + 1;
+    }
+
+    // ================= Cluster Helpers =================
+    private int clusterOf(int cell) {
+        return (ctx.row(cell) / clusterSize) * clustersPerSide + ctx.col(cell) / clusterSize;
+    }
+
+    // BFS from `from` that never leaves the cluster; stops early at target
+    private void localBfs(int from, int cluster, int target) {
+        ctx.begin(from);
+        ctx.push(from);
+        while (!ctx.isEmpty()) {
+            int cur = ctx.poll();
+            if (cur == target) return;
+            for (int d = 0; d < 4; d++) {
+                int next = ctx.neighbor(cur, d);
+                if (next >= 0 && !ctx.visited(next) && clusterOf(next) == cluster) {
+                    ctx.visit(next, d);
+                    ctx.dist[next] = ctx.dist[cur] + 1;
+                    ctx.push(next);
+                }
+            }
+        }
+    }
+
+    private interface NodeVisitor {
+        void visit(int id, int cell);
+    }
+
+    private void forEachNodeIn(int cluster, NodeVisitor visitor) {
+        int x0 = (cluster / clustersPerSide) * clusterSize;
+        int y0 = (cluster % clustersPerSide) * clusterSize;
+        int x1 = Math.min(size, x0 + clusterSize);
+        int y1 = Math.min(size, y0 + clusterSize);
+        for (int x = x0; x < x1; x++) {
+            for (int y = y0; y < y1; y++) {
+                int cell = ctx.index(x, y);
+                if (nodeOf[cell] >= 0) visitor.visit(nodeOf[cell], cell);
+            }
+        }
+    }
+
+    // ================= Graph Storage =================
+    private static final class HNode {
+        final int cell;
+        final Edges inter = new Edges();
+        final Edges intra = new Edges();
+
+        HNode(int cell) {
+            this.cell = cell;
+        }
+    }
+
+    private static final class Edges {
+        int[] to = new int[4];
+        int[] cost = new int[4];
+        int count;
+
+        void add(int target, int c) {
+            if (count == to.length) {
+                to = Arrays.copyOf(to, count * 2);
+                cost = Arrays.copyOf(cost, count * 2);
+            }
+            to[count] = target;
+            cost[count++] = c;
+        }
+
+        void remove(int target) {
+            for (int k = 0; k < count; k++) {
+                if (to[k] == target) {
+                    count--;
+                    to[k] = to[count];
+                    cost[k] = cost[count];
+                    return;
+                }
+            }
+        }
+
+        void clear() {
+            count = 0;
+        }
+    }
+}
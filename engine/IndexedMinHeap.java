@@ -0,0 +1,115 @@
+package engine;
+
+// Binary min-heap over the integers 0..capacity-1 with decrease-key.
+// Each item sits in the heap at most once; pos[] maps an item to its slot
+// (plus one, so 0 means "not queued"), which keeps updates O(log n)
+// without allocating entry objects.
+final class IndexedMinHeap {
+
+    private final int[] heap;
+    private final int[] pos;
+    private final long[] key;
+    private int size;
+
+    // Polls and largest size since resetStats()
+    long polls;
+    int peak;
+
+    IndexedMinHeap(int capacity) {
+        heap = new int[capacity];
+        pos = new int[capacity];
+        key = new long[capacity];
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean contains(int item) {
+        return pos[item] != 0;
+    }
+
+    long keyOf(int item) {
+        return key[item];
+    }
+
+    // Costs O(size) rather than O(capacity)
+    void clear() {
+        for (int k = 0; k < size; k++) pos[heap[k]] = 0;
+        size = 0;
+    }
+
+    // Inserts the item, or lowers its key if it is already queued with a
+    // larger one. Returns false when the existing key was already <= k.
+    boolean offer(int item, long k) {
+        int slot = pos[item] - 1;
+        if (slot < 0) {
+            heap[size] = item;
+            pos[item] = size + 1;
+            key[item] = k;
+            siftUp(size++);
+            if (size > peak) peak = size;
+            return true;
+        }
+        if (k >= key[item]) return false;
+        key[item] = k;
+        siftUp(slot);
+        return true;
+    }
+
+    int poll() {
+        polls++;
+        int top = heap[0];
+        pos[top] = 0;
+        size--;
+        if (size > 0) {
+            heap[0] = heap[size];
+            pos[heap[0]] = 1;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    void resetStats() {
+        polls = 0;
+        peak = 0;
+    }
+
+    // ================= Heap Maintenance =================
+    private void siftUp(int slot) {
+        int item = heap[slot];
+        long k = key[item];
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            int p = heap[parent];
+            if (key[p] <= k) break;
+            heap[slot] = p;
+            pos[p] = slot + 1;
+            slot = parent;
+        }
+        heap[slot] = item;
+        pos[item] = slot + 1;
+    }
+
+    private void siftDown(int slot) {
+        int item = heap[slot];
+        long k = key[item];
+        int half = size >>> 1;
+        while (slot < half) {
+            int child = 2 * slot + 1;
+            int right = child + 1;
+            if (right < size && key[heap[right]] < key[heap[child]]) child = right;
+            int c = heap[child];
+            if (k <= key[c]) break;
+            heap[slot] = c;
+            pos[c] = slot + 1;
+            slot = child;
+        }
+        heap[slot] = item;
+        pos[item] = slot + 1;
+    }
+}
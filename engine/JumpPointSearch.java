@@ -0,0 +1,152 @@
+package engine;
+
+import util.Config;
+
+// Jump Point Search for the 4-connected grid.
+//
+// Among equally short paths we only follow canonical ones: vertical
+// moves may turn horizontal anywhere, but a horizontal run may only turn
+// vertical where the cell beside the previous step was a wall (a forced
+// neighbour). Any shortest path can be rewritten that way by swapping
+// "horizontal, vertical" pairs whenever the corner cell is open, so the
+// search stays optimal while horizontal runs jump over open space
+// without touching the open list.
+//
+// A cell can be reached with the same g from several directions, each
+// allowing different successors, so the direction bits waiting to be
+// expanded are kept per cell and a cell is reopened when a new one shows
+// up at equal cost.
+final class JumpPointSearch {
+
+    private static final int UP = 0, DOWN = 1, LEFT = 2, RIGHT = 3;
+    private static final int VERTICAL = (1 << UP) | (1 << DOWN);
+
+    private final SearchContext ctx;
+    private final int[] parent;
+    private final byte[] pending;
+    private final byte[] expanded;
+
+    private int target, tx, ty;
+
+    JumpPointSearch(SearchContext ctx) {
+        this.ctx = ctx;
+        this.parent = new int[ctx.cells];
+        this.pending = new byte[ctx.cells];
+        this.expanded = new byte[ctx.cells];
+    }
+
+    // Returns the target index once it is popped, or -1
+    int search(int source, int target) {
+        this.target = target;
+        this.tx = ctx.row(target);
+        this.ty = ctx.col(target);
+
+        ctx.begin(source);
+        ctx.dist[source] = 0;
+        parent[source] = -1;
+        pending[source] = (byte) VERTICAL;   // the start may leave in all four directions
+        expanded[source] = 0;
+        ctx.heap.offer(source, key(source, 0));
+        int depth = 0;
+
+        while (!ctx.heap.isEmpty() && depth < Config.BFS_MAX_DEPTH) {
+            int cur = ctx.heap.poll();
+            if (cur == target) return cur;
+
+            int dirs = pending[cur];
+            expanded[cur] |= dirs;
+            pending[cur] = 0;
+            int g = ctx.dist[cur];
+
+            // Vertical arrivals keep going and may turn either way;
+            // horizontal arrivals keep going and turn only where forced
+            int steps = dirs & VERTICAL;
+            int jumps = steps != 0 ? (1 << LEFT) | (1 << RIGHT) : 0;
+            for (int h = LEFT; h <= RIGHT; h++) {
+                if ((dirs & (1 << h)) == 0) continue;
+                jumps |= 1 << h;
+                int back = ctx.neighbor(cur, h ^ 1);
+                for (int v = UP; v <= DOWN; v++) {
+                    if (back >= 0 && forced(back, cur, v)) steps |= 1 << v;
+                }
+            }
+            for (int d = 0; d < 4; d++) {
+                if ((steps & (1 << d)) != 0) step(cur, d, g);
+                if ((jumps & (1 << d)) != 0) jump(cur, d, g);
+            }
+            depth++;
+        }
+        if (!ctx.heap.isEmpty()) ctx.budgetHit = true;
+        return -1;
+    }
+
+    // ================= Successors =================
+    private void step(int cur, int v, int g) {
+        int next = ctx.neighbor(cur, v);
+        if (next >= 0) relax(next, cur, v, g + 1);
+    }
+
+    // Runs horizontally until the target, a forced neighbour or a wall
+    private void jump(int cur, int h, int g) {
+        int prev = cur;
+        int next = ctx.neighbor(cur, h);
+        while (next >= 0) {
+            g++;
+            if (next == target || forced(prev, next, UP) || forced(prev, next, DOWN)) {
+                relax(next, cur, h, g);
+                return;
+            }
+            prev = next;
+            next = ctx.neighbor(next, h);
+        }
+    }
+
+    // next is a forced turn in direction v when it is open there but prev is not
+    private boolean forced(int prev, int next, int v) {
+        return ctx.neighbor(next, v) >= 0 && ctx.neighbor(prev, v) < 0;
+    }
+
+    private void relax(int next, int from, int dir, int g) {
+        int bit = 1 << dir;
+        if (!ctx.visited(next) || g < ctx.dist[next]) {
+            ctx.visit(next, dir);
+            ctx.dist[next] = g;
+            parent[next] = from;
+            pending[next] = (byte) bit;
+            expanded[next] = 0;
+            ctx.heap.offer(next, key(next, g));
+        } else if (g == ctx.dist[next] && ((pending[next] | expanded[next]) & bit) == 0) {
+            pending[next] |= bit;
+            ctx.heap.offer(next, key(next, g));
+        }
+    }
+
+    private long key(int cell, int g) {
+        int h = Math.abs(ctx.row(cell) - tx) + Math.abs(ctx.col(cell) - ty);
+        return ((long) (g + h) << 32) | h;
+    }
+
+    // ================= Path =================
+    // Expands the jump points back into single grid steps in ctx.path
+    void tracePath(int end) {
+        ctx.pathLength = 0;
+        if (end < 0) return;
+        int len = ctx.dist[end] + 1;
+        ctx.pathLength = len;
+
+        int cur = end;
+        while (parent[cur] != -1) {
+            int from = parent[cur];
+            int stepX = Integer.signum(ctx.row(from) - ctx.row(cur));
+            int stepY = Integer.signum(ctx.col(from) - ctx.col(cur));
+            int x = ctx.row(cur), y = ctx.col(cur);
+            while (ctx.index(x, y) != from) {
+                ctx.path[--len] = ctx.index(x, y);
+                x += stepX;
+                y += stepY;
+            }
+            cur = from;
+        }
+        ctx.path[--len] = cur;
+    }
+}
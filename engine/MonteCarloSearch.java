@@ -0,0 +1,234 @@
+package engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import model.Maze;
+import model.Player;
+import util.Config;
+
+// Root-parallel Monte Carlo Tree Search for the CPU.
+//
+// Every worker thread grows its own UCT tree over both players' moves on
+// its own copy of the board, until Config.MCTS_TIME_BUDGET_MS runs out.
+// Leaves are scored by a light playout (grab an adjacent gem if there is
+// one, otherwise wander) of up to Config.MCTS_PLAYOUT_DEPTH plies or the
+// end of the game. The root visit counts of all trees are then added up
+// and the most visited move wins, so more cores means more playouts.
+//
+// The worker threads are shared by every engine: the speculative planner
+// runs an engine per branch next to the game's own, and their trees
+// queue for the same threads instead of each engine bringing a pool.
+final class MonteCarloSearch {
+
+    private static final int THREADS = Config.MCTS_THREADS > 0
+            ? Config.MCTS_THREADS
+            : Runtime.getRuntime().availableProcessors();
+    private static final ExecutorService WORKERS = newWorkers();
+
+    private final GameState root;
+    private final Tree[] trees;
+
+    MonteCarloSearch(Maze maze) {
+        this.root = new GameState(maze.size);
+        this.trees = new Tree[THREADS];
+        for (int t = 0; t < THREADS; t++) trees[t] = new Tree(maze.size);
+    }
+
+    private static ExecutorService newWorkers() {
+        AtomicInteger ids = new AtomicInteger();
+        return Executors.newFixedThreadPool(THREADS, r -> {
+            Thread t = new Thread(r, "mcts-" + ids.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // Cell the CPU should step to, or -1 when the search was interrupted
+    int bestMove(Maze maze, Player cpu, Player human, int movesRemaining) {
+        root.load(maze, cpu, human, movesRemaining);
+        long deadline = System.nanoTime() + Config.MCTS_TIME_BUDGET_MS * 1_000_000L;
+
+        List<Callable<Void>> jobs = new ArrayList<>();
+        for (Tree tree : trees) {
+            jobs.add(() -> {
+                tree.search(root, deadline);
+                return null;
+            });
+        }
+        try {
+            WORKERS.invokeAll(jobs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+
+        int[] cells = new int[4];
+        int n = root.moves(cells);
+        int best = -1;
+        long bestVisits = -1;
+        for (int k = 0; k < n; k++) {
+            long visits = 0;
+            for (Tree tree : trees) visits += tree.rootVisits(cells[k]);
+            if (visits > bestVisits) {
+                bestVisits = visits;
+                best = cells[k];
+            }
+        }
+        return best;
+    }
+
+    // Tree nodes grown by the last bestMove(), over all threads
+    long nodes() {
+        long total = 0;
+        for (Tree tree : trees) total += tree.nodes;
+        return total;
+    }
+
+    // ================= UCT Tree =================
+    // Nodes live in flat arrays; the children of a node are stored next
+    // to each other starting at first[node]. Node 0 is the root.
+    private static final class Tree {
+        private final GameState state;
+        private final int[] move;
+        private final int[] first;
+        private final byte[] count;
+        private final int[] visits;
+        private final double[] wins;
+        private int nodes;
+
+        // Undo stack for one iteration: tree path, then the playout
+        private final int[] path;
+        private final int[] from;
+        private final int[] taken;
+        private final boolean[] byCpu;
+        private final int[] buf = new int[4];
+
+        Tree(int size) {
+            int capacity = Config.MCTS_MAX_NODES;
+            int stack = capacity + Config.MCTS_PLAYOUT_DEPTH;
+            this.state = new GameState(size);
+            this.move = new int[capacity];
+            this.first = new int[capacity];
+            this.count = new byte[capacity];
+            this.visits = new int[capacity];
+            this.wins = new double[capacity];
+            this.path = new int[stack];
+            this.from = new int[stack];
+            this.taken = new int[stack];
+            this.byCpu = new boolean[stack];
+        }
+
+        void search(GameState start, long deadline) {
+            state.copyFrom(start);
+            nodes = 1;
+            count[0] = 0;
+            visits[0] = 0;
+            wins[0] = 0;
+            if (state.isOver()) return;
+            expand(0);
+            while (System.nanoTime() < deadline) iterate();
+        }
+
+        long rootVisits(int cell) {
+            for (int c = first[0]; c < first[0] + count[0]; c++) {
+                if (move[c] == cell) return visits[c];
+            }
+            return 0;
+        }
+
+        private void iterate() {
+            int depth = 0;
+            int node = 0;
+
+            // Selection, then expansion of the leaf we stopped at
+            while (count[node] > 0) {
+                node = select(node);
+                depth = push(depth, node, move[node]);
+            }
+            if (!state.isOver() && visits[node] > 0 && expand(node)) {
+                node = first[node];
+                depth = push(depth, node, move[node]);
+            }
+            int treeDepth = depth;
+
+            // Playout
+            ThreadLocalRandom rnd = ThreadLocalRandom.current();
+            for (int p = 0; p < Config.MCTS_PLAYOUT_DEPTH && !state.isOver(); p++) {
+                depth = push(depth, -1, playoutMove(rnd));
+            }
+            double reward = reward(state.evaluate());
+
+            // Back-propagation and undo
+            visits[0]++;
+            for (int i = depth - 1; i >= 0; i--) {
+                if (i < treeDepth) {
+                    visits[path[i]]++;
+                    wins[path[i]] += byCpu[i] ? reward : 1 - reward;
+                }
+                state.undo(from[i], taken[i]);
+            }
+        }
+
+        private int push(int depth, int node, int cell) {
+            path[depth] = node;
+            byCpu[depth] = state.cpuToMove;
+            from[depth] = state.mover();
+            taken[depth] = state.play(cell);
+            return depth + 1;
+        }
+
+        // Unvisited children first, then UCB1
+        private int select(int node) {
+            double logN = Math.log(visits[node]);
+            int best = -1;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int c = first[node]; c < first[node] + count[node]; c++) {
+                if (visits[c] == 0) return c;
+                double score = wins[c] / visits[c]
+                        + Config.MCTS_EXPLORATION * Math.sqrt(logN / visits[c]);
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = c;
+                }
+            }
+            return best;
+        }
+
+        private boolean expand(int node) {
+            int n = state.moves(buf);
+            if (nodes + n > move.length) return false;    // pool is full
+            first[node] = nodes;
+            for (int k = 0; k < n; k++) {
+                int c = nodes + k;
+                move[c] = buf[k];
+                count[c] = 0;
+                visits[c] = 0;
+                wins[c] = 0;
+            }
+            count[node] = (byte) n;
+            nodes += n;
+            return true;
+        }
+
+        private int playoutMove(ThreadLocalRandom rnd) {
+            int n = state.moves(buf);
+            int best = -1;
+            for (int k = 0; k < n; k++) {
+                if (state.cash[buf[k]] > 0 && (best < 0 || state.cash[buf[k]] > state.cash[best])) {
+                    best = buf[k];
+                }
+            }
+            return best >= 0 ? best : buf[rnd.nextInt(n)];
+        }
+
+        // Squashes the CPU-side evaluation into (0, 1)
+        private static double reward(int eval) {
+            return 0.5 + 0.5 * eval / (Math.abs(eval) + 2000.0);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package engine;
+
+import java.lang.management.ManagementFactory;
+
+// What one AIEngine.move cost, or the running total over a game.
+//
+// nodesExpanded counts cells (or game-tree nodes) taken off a search's
+// queue, stack or heap; queuePeak is the largest that frontier got.
+// bytesAllocated is measured on the calling thread only, so work done on
+// helper threads (MCTS workers, DNC forks, the route planner) is not in
+// it, and it is -1 when the JVM cannot count allocations.
+public class MoveStats {
+
+    public long moves;
+    public long nodesExpanded;
+    public int queuePeak;
+    public long nanos;
+    public long maxNanos;       // slowest single move
+    public long bytesAllocated;
+    public long budgetHits;     // moves whose target was not reached within Config.BFS_MAX_DEPTH
+
+    public void reset() {
+        moves = 0;
+        nodesExpanded = 0;
+        queuePeak = 0;
+        nanos = 0;
+        maxNanos = 0;
+        bytesAllocated = 0;
+        budgetHits = 0;
+    }
+
+    public void copyFrom(MoveStats other) {
+        reset();
+        add(other);
+    }
+
+    public boolean budgetHit() {
+        return budgetHits > 0;
+    }
+
+    public void add(MoveStats move) {
+        moves += move.moves;
+        nodesExpanded += move.nodesExpanded;
+        queuePeak = Math.max(queuePeak, move.queuePeak);
+        nanos += move.nanos;
+        maxNanos = Math.max(maxNanos, move.maxNanos);
+        budgetHits += move.budgetHits;
+        if (bytesAllocated >= 0) {
+            bytesAllocated = move.bytesAllocated < 0 ? -1 : bytesAllocated + move.bytesAllocated;
+        }
+    }
+
+    public double millis() {
+        return nanos / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("nodes %d | peak %d | %.2f ms | %s | budget hit %d/%d",
+                nodesExpanded, queuePeak, millis(),
+                bytesAllocated < 0 ? "alloc n/a" : bytesAllocated + " B",
+                budgetHits, moves);
+    }
+
+    // ================= Allocation Counter =================
+    private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+
+    // Bytes allocated so far by the current thread, or -1 if unsupported
+    public static long threadAllocatedBytes() {
+        return THREADS != null ? THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        try {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean t
+                    && t.isThreadAllocatedMemorySupported()) {
+                t.setThreadAllocatedMemoryEnabled(true);
+                return t;
+            }
+        } catch (UnsupportedOperationException | SecurityException e) {
+            // fall through: no allocation numbers
+        }
+        return null;
+    }
+}
@@ -0,0 +1,31 @@
+package engine;
+
+import model.Maze;
+
+// A pathfinding algorithm the CPU can play with.
+//
+// Implementations are found with java.util.ServiceLoader: list the class
+// in META-INF/services/engine.Pathfinder on the classpath and it shows
+// up in the algorithm menus under its name(). The built-in algorithms
+// are registered the same way (see BuiltinPathfinder).
+public interface Pathfinder {
+
+    // Name shown in the menus and used to pick the algorithm
+    String name();
+
+    // Every path found is a shortest one
+    boolean isOptimal();
+
+    // The search gives up after Config.BFS_MAX_DEPTH expansions
+    boolean supportsBudget();
+
+    // Search state for one maze; each AIEngine binds its own
+    Instance bind(Maze maze);
+
+    interface Instance {
+        // Writes the path from source to target into path as flat cell
+        // indices (x * size + y), source first, and returns its length;
+        // 0 when there is none. path has room for every cell of the maze.
+        int findPath(int source, int target, int[] path);
+    }
+}
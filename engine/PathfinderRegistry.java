@@ -0,0 +1,47 @@
+package engine;
+
+import java.util.*;
+
+// Every algorithm the game can offer, by name: the Pathfinders found by
+// ServiceLoader, in classpath order. Built-ins missing from the classpath
+// resources (e.g. when the classes were compiled without META-INF) are
+// added from AlgorithmType so they are always there.
+public final class PathfinderRegistry {
+
+    private static Map<String, Pathfinder> registry;
+
+    private PathfinderRegistry() {
+    }
+
+    public static synchronized Map<String, Pathfinder> all() {
+        if (registry == null) {
+            Map<String, Pathfinder> found = new LinkedHashMap<>();
+            for (AlgorithmType type : AlgorithmType.values()) {
+                found.put(type.name(), null);    // keeps built-ins first, in enum order
+            }
+            for (Pathfinder p : ServiceLoader.load(Pathfinder.class)) {
+                String name = p.name().toUpperCase();
+                if (found.get(name) == null) found.put(name, p);
+            }
+            for (AlgorithmType type : AlgorithmType.values()) {
+                if (found.get(type.name()) == null) found.put(type.name(), new BuiltinPathfinder(type));
+            }
+            registry = Collections.unmodifiableMap(found);
+        }
+        return registry;
+    }
+
+    public static List<String> names() {
+        return new ArrayList<>(all().keySet());
+    }
+
+    // null when no algorithm has that name
+    public static Pathfinder get(String name) {
+        return name == null ? null : all().get(name.toUpperCase());
+    }
+
+    // The AlgorithmType behind a built-in name, or null for a plug-in
+    public static AlgorithmType builtIn(String name) {
+        return get(name) instanceof BuiltinPathfinder b ? b.type() : null;
+    }
+}
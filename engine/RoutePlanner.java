@@ -0,0 +1,282 @@
+package engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import model.Maze;
+import util.Config;
+
+// Move-budget-aware route planning (orienteering) for the CPU.
+//
+// Instead of chasing the single best gem, the planner looks for a tour
+// over several gems that collects the most value within the moves that
+// are left. It works on the Config.ROUTE_MAX_GEMS most promising gems
+// and a gem-to-gem distance matrix read from one full BFS field per gem.
+// Fields are cached by cell, so a replan only floods the gems it has not
+// seen before, and a gem's field is dropped as soon as it is collected.
+// Each field remembers the maze's wall version it was flooded on; one
+// from before the walls last changed (a plan started before a Reset can
+// still be storing them) is neither reused nor handed out.
+//
+// Tours are found by branch and bound, one subtree per first gem on the
+// common ForkJoinPool, under a wall-clock budget of
+// Config.ROUTE_TIME_BUDGET_MS. Planning runs on a background thread; the
+// engine keeps following the last route while a new one is computed.
+// The worker plans on its own copy of the board, refreshed from the live
+// maze on the engine's thread before each replan, so it never reads a
+// board the game is changing.
+final class RoutePlanner implements Maze.CellListener {
+
+    private static final int UNREACHABLE = -1;
+
+    private final Maze maze;
+    private final Maze board;          // the worker's snapshot of maze
+    private final SearchContext ctx;   // over board
+    private final ExecutorService worker;
+    private final Map<Integer, Field> fields = new ConcurrentHashMap<>();
+
+    private volatile Route route;
+    private Future<Route> pending;
+
+    RoutePlanner(Maze maze) {
+        this.maze = maze;
+        this.board = maze.copy();
+        this.ctx = new SearchContext(board);
+        this.worker = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "route-planner");
+            t.setDaemon(true);
+            return t;
+        });
+        maze.addCellListener(this);
+    }
+
+    @Override
+    public void cellChanged(int x, int y) {
+        int cell = ctx.index(x, y);
+        if (!maze.valid(x, y)) {
+            fields.clear();    // walls changed, every field is stale
+        } else if (!maze.hasCash(x, y)) {
+            fields.remove(cell);
+        }
+    }
+
+    // ================= Engine API =================
+    // Gem the CPU should head for next, or -1 while no route is ready.
+    // Collected gems are dropped from the route; when one disappears
+    // before the CPU reached it, or the route runs out, a replan starts.
+    int nextTarget(int cpuCell, int movesRemaining) {
+        if (pending != null && pending.isDone()) {
+            try {
+                route = pending.get();
+            } catch (Exception e) {
+                route = null;
+            }
+            pending = null;
+        }
+
+        Route r = route;
+        boolean stale = r == null;
+        if (r != null) {
+            while (r.next < r.gems.length && !hasGem(r.gems[r.next])) {
+                if (r.gems[r.next] != cpuCell) stale = true;   // taken by someone else
+                r.next++;
+            }
+            for (int k = r.next + 1; k < r.gems.length; k++) {
+                if (!hasGem(r.gems[k])) stale = true;
+            }
+            if (r.next >= r.gems.length) stale = true;
+        }
+
+        if (stale && pending == null) {
+            int walls = maze.getWallVersion();
+            board.copyStateFrom(maze);    // the worker is idle
+            pending = worker.submit(() -> plan(cpuCell, movesRemaining, walls));
+        }
+        return r != null && r.next < r.gems.length ? r.gems[r.next] : -1;
+    }
+
+    void shutdown() {
+        worker.shutdownNow();
+        maze.removeCellListener(this);
+    }
+
+    // Full BFS distances (in steps) from the gem at cell, if cached for
+    // the maze as it is now
+    int[] fieldFor(int cell) {
+        Field field = fields.get(cell);
+        if (field == null) return null;
+        if (field.walls != maze.getWallVersion() || !hasGem(cell)) {
+            fields.remove(cell, field);
+            return null;
+        }
+        return field.steps;
+    }
+
+    private boolean hasGem(int cell) {
+        return maze.hasCash(ctx.row(cell), ctx.col(cell));
+    }
+
+    private int cashAt(int cell) {
+        return board.cashAt(ctx.row(cell), ctx.col(cell));
+    }
+
+    // ================= Planning =================
+    // walls is the maze's wall version when board was copied from it
+    private Route plan(int start, int budget, int walls) {
+        int[] fromStart = flood(start);
+
+        // Most promising candidates by value / distance from the CPU
+        List<Integer> reachable = new ArrayList<>();
+        for (int g = 0; g < board.gemSlots(); g++) {
+            int cell = board.gem(g);
+            if (cell < 0) continue;
+            int d = fromStart[cell];
+            if (d != UNREACHABLE && d <= budget) reachable.add(cell);
+        }
+        if (reachable.isEmpty()) return null;
+        reachable.sort(Comparator.comparingDouble(
+                (Integer cell) -> -(double) cashAt(cell) / (fromStart[cell] + 1))
+                .thenComparingInt(cell -> cell));
+        int k = Math.min(Config.ROUTE_MAX_GEMS, reachable.size());
+        int[] cells = new int[k];
+        for (int g = 0; g < k; g++) cells[g] = reachable.get(g);
+
+        // Distance matrix: row k is the start, rows 0..k-1 the gems
+        int[] values = new int[k];
+        int[][] dist = new int[k + 1][k];
+        for (int g = 0; g < k; g++) {
+            values[g] = cashAt(cells[g]);
+            int[] field = fields.compute(cells[g],
+                    (cell, f) -> f != null && f.walls == walls ? f : new Field(flood(cell), walls)).steps;
+            for (int h = 0; h < k; h++) dist[h][g] = field[cells[h]];
+            dist[k][g] = fromStart[cells[g]];
+        }
+
+        Search search = new Search(values, dist, budget, k);
+        IntStream.range(0, k).parallel().forEach(search::rootedAt);
+
+        int[] order = search.bestOrder();
+        int[] gems = new int[order.length];
+        for (int g = 0; g < order.length; g++) gems[g] = cells[order[g]];
+        return new Route(gems);
+    }
+
+    // Unbudgeted BFS in steps from cell; UNREACHABLE where it cannot go
+    private int[] flood(int cell) {
+        int[] out = new int[ctx.cells];
+        Arrays.fill(out, UNREACHABLE);
+        ctx.begin(cell);
+        ctx.push(cell);
+        while (!ctx.isEmpty()) {
+            int cur = ctx.poll();
+            out[cur] = ctx.dist[cur] - 1;
+            for (int d = 0; d < 4; d++) {
+                int next = ctx.neighbor(cur, d);
+                if (next >= 0 && !ctx.visited(next)) {
+                    ctx.visit(next, d);
+                    ctx.dist[next] = ctx.dist[cur] + 1;
+                    ctx.push(next);
+                }
+            }
+        }
+        return out;
+    }
+
+    // ================= Branch and Bound =================
+    private static final class Search {
+        private final int[] values;
+        private final int[][] dist;
+        private final int budget;
+        private final int start;
+        private final long deadline;
+
+        // value in the high bits and the unused budget in the low bits, so
+        // one compare prefers more value and then the shorter tour
+        private final AtomicLong best = new AtomicLong(Long.MIN_VALUE);
+        private int[] bestOrder = new int[0];
+
+        Search(int[] values, int[][] dist, int budget, int start) {
+            this.values = values;
+            this.dist = dist;
+            this.budget = budget;
+            this.start = start;
+            this.deadline = System.nanoTime() + Config.ROUTE_TIME_BUDGET_MS * 1_000_000L;
+        }
+
+        void rootedAt(int first) {
+            int d = dist[start][first];
+            if (d == UNREACHABLE || d > budget) return;
+            int[] order = new int[values.length];
+            order[0] = first;
+            extend(order, 1, 1L << first, d, values[first]);
+        }
+
+        private void extend(int[] order, int depth, long used, int length, int value) {
+            offer(order, depth, length, value);
+            if (System.nanoTime() > deadline) return;
+
+            int cur = order[depth - 1];
+            int bound = value;
+            for (int g = 0; g < values.length; g++) {
+                if ((used & (1L << g)) == 0 && reachable(cur, g, length)) bound += values[g];
+            }
+            if (bound <= (int) (best.get() >> 32)) return;
+
+            for (int g = 0; g < values.length; g++) {
+                if ((used & (1L << g)) != 0 || !reachable(cur, g, length)) continue;
+                order[depth] = g;
+                extend(order, depth + 1, used | (1L << g), length + dist[cur][g], value + values[g]);
+            }
+        }
+
+        private boolean reachable(int from, int to, int length) {
+            int d = dist[from][to];
+            return d != UNREACHABLE && length + d <= budget;
+        }
+
+        private void offer(int[] order, int depth, int length, int value) {
+            long key = ((long) value << 32) | (budget - length);
+            long cur = best.get();
+            while (key > cur) {
+                if (best.compareAndSet(cur, key)) {
+                    synchronized (this) {
+                        if (best.get() == key) bestOrder = Arrays.copyOf(order, depth);
+                    }
+                    return;
+                }
+                cur = best.get();
+            }
+        }
+
+        synchronized int[] bestOrder() {
+            return bestOrder;
+        }
+    }
+
+    private static final class Field {
+        final int[] steps;
+        final int walls;
+
+        Field(int[] steps, int walls) {
+            this.steps = steps;
+            this.walls = walls;
+        }
+    }
+
+    private static final class Route {
+        final int[] gems;
+        int next;
+
+        Route(int[] gems) {
+            this.gems = gems;
+        }
+    }
+}
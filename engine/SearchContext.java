@@ -0,0 +1,176 @@
+package engine;
+
+import java.util.Arrays;
+import model.Maze;
+import util.Config;
+
+// Reusable scratch space for the grid searches in AIEngine.
+// Cells are addressed by a flat index (x * size + y). Visited marks are
+// epoch-stamped, so starting a new search is O(1) instead of clearing
+// size * size arrays, and nothing is allocated once the buffers exist.
+final class SearchContext {
+
+    static final int[] DX = {-1, 1, 0, 0};
+    static final int[] DY = {0, 0, -1, 1};
+    static final int NO_PARENT = -1;
+
+    final Maze maze;
+    final int size;
+    final int cells;
+
+    // Ring buffer used as the BFS queue or the DFS stack
+    final int[] queue;
+    final int mask;
+    int head, tail;
+
+    final int[] stamp;
+    final int[] closed;
+    final int[] dist;
+    final byte[] parentDir;
+    int epoch;
+    int source;
+
+    // Open list for best-first searches
+    final IndexedMinHeap heap;
+
+    // Last planned path as cell indices, source first
+    int[] path;
+    int pathLength;
+
+    // Instrumentation since the last resetStats(), read into MoveStats
+    long expanded;
+    int queuePeak;
+    boolean budgetHit;
+
+    SearchContext(Maze maze) {
+        this.maze = maze;
+        this.size = maze.size;
+        this.cells = size * size;
+
+        int capacity = Integer.highestOneBit(Math.max(1, cells - 1)) << 1;
+        this.queue = new int[capacity];
+        this.mask = capacity - 1;
+
+        this.stamp = new int[cells];
+        this.closed = new int[cells];
+        this.dist = new int[cells];
+        this.parentDir = new byte[cells];
+        this.heap = new IndexedMinHeap(cells);
+        // Greedy walks may revisit cells, so allow a full budget of steps
+        this.path = new int[Math.max(cells, Config.BFS_MAX_DEPTH + 1)];
+    }
+
+    // ================= Search Lifecycle =================
+    void begin(int source) {
+        if (epoch == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            Arrays.fill(closed, 0);
+            epoch = 0;
+        }
+        epoch++;
+        head = tail = 0;
+        heap.clear();
+        this.source = source;
+        visit(source, NO_PARENT);
+        dist[source] = 1;
+    }
+
+    boolean visited(int i) {
+        return stamp[i] == epoch;
+    }
+
+    void visit(int i, int dir) {
+        stamp[i] = epoch;
+        parentDir[i] = (byte) dir;
+    }
+
+    boolean isClosed(int i) {
+        return closed[i] == epoch;
+    }
+
+    void close(int i) {
+        closed[i] = epoch;
+    }
+
+    // ================= Queue / Stack =================
+    void push(int i) {
+        queue[tail++ & mask] = i;
+        if (tail - head > queuePeak) queuePeak = tail - head;
+    }
+
+    int poll() {
+        expanded++;
+        return queue[head++ & mask];
+    }
+
+    int pop() {
+        expanded++;
+        return queue[--tail & mask];
+    }
+
+    // Drops whatever is still queued, clearing its dist
+    void clearQueued() {
+        while (head != tail) dist[queue[head++ & mask]] = 0;
+    }
+
+    boolean isEmpty() {
+        return head == tail;
+    }
+
+    // ================= Instrumentation =================
+    void resetStats() {
+        expanded = 0;
+        queuePeak = 0;
+        budgetHit = false;
+        heap.resetStats();
+    }
+
+    void addStats(MoveStats stats) {
+        stats.nodesExpanded += expanded + heap.polls;
+        stats.queuePeak = Math.max(stats.queuePeak, Math.max(queuePeak, heap.peak));
+        if (budgetHit) stats.budgetHits = 1;
+    }
+
+    // ================= Indexing =================
+    int index(int x, int y) {
+        return x * size + y;
+    }
+
+    int row(int i) {
+        return i / size;
+    }
+
+    int col(int i) {
+        return i % size;
+    }
+
+    // Index of the open cell in direction d, or -1 for walls and edges
+    int neighbor(int i, int d) {
+        int nx = row(i) + DX[d];
+        int ny = col(i) + DY[d];
+        return maze.open(nx, ny) ? nx * size + ny : -1;
+    }
+
+    int parent(int i) {
+        int d = parentDir[i];
+        if (d == NO_PARENT) return -1;
+        return index(row(i) - DX[d], col(i) - DY[d]);
+    }
+
+    // ================= Paths =================
+    // Copies the parent chain ending at end into path[], source first
+    void tracePath(int end) {
+        pathLength = 0;
+        if (end < 0) return;
+        int len = 0;
+        for (int cur = end; cur != -1; cur = parent(cur)) len++;
+        pathLength = len;
+        for (int cur = end; cur != -1; cur = parent(cur)) path[--len] = cur;
+    }
+
+    void setPath(int[] cells, int length) {
+        if (length > path.length) path = new int[length];
+        System.arraycopy(cells, 0, path, 0, length);
+        pathLength = length;
+    }
+}
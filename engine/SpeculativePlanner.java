@@ -0,0 +1,163 @@
+package engine;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import model.Maze;
+import model.Player;
+import util.Config;
+
+// Plans the CPU's answer while the human is still thinking.
+//
+// start() is called while the game waits for a key: for each of the
+// human's (up to four) legal moves, a branch copies the board, plays the
+// human's step on the copy and lets its own AIEngine pick the CPU's
+// reply. commit() then applies the reply that matches the move the human
+// actually made and throws the rest away. Each branch runs on its own
+// thread, so a branch still busy with a discarded plan simply finishes
+// it before starting the next one.
+public class SpeculativePlanner {
+
+    private static final int[] DX = {-1, 1, 0, 0};
+    private static final int[] DY = {0, 0, -1, 1};
+
+    private final Maze maze;
+    private final String algorithm;
+    private final Branch[] branches = new Branch[4];
+
+    // Where the human stood when the branches were started
+    private int hx = -1, hy = -1;
+
+    private volatile MoveStats committedStats;
+
+    public SpeculativePlanner(Maze maze, String algorithm) {
+        this.maze = maze;
+        this.algorithm = algorithm;
+        for (int d = 0; d < 4; d++) branches[d] = new Branch(d);
+    }
+
+    // ================= Game API =================
+    // Call on the EDT once the CPU has moved and the human is to play
+    public synchronized void start(Player human, Player cpu, int movesRemaining) {
+        cancel();
+        if (!Config.AI_SPECULATE) return;
+        // The route lives in the main engine's background planner; four
+        // branch copies would each chase a route of their own
+        if (PathfinderRegistry.builtIn(algorithm) == AlgorithmType.ORIENTEERING) return;
+        if (movesRemaining <= 1) return;    // the human's move ends the game
+
+        Maze snapshot = maze.copy();
+        hx = human.x;
+        hy = human.y;
+        for (int d = 0; d < 4; d++) {
+            int nx = hx + DX[d];
+            int ny = hy + DY[d];
+            if (maze.valid(nx, ny)) {
+                branches[d].submit(snapshot, nx, ny, cpu, movesRemaining - 1);
+            }
+        }
+    }
+
+    // Moves cpu to the reply planned for the human's actual move, waiting
+    // for it if needed; false when that move was not speculated on
+    public boolean commit(Player human, Player cpu) {
+        Future<Reply> reply = null;
+        synchronized (this) {
+            for (int d = 0; d < 4; d++) {
+                if (hx + DX[d] == human.x && hy + DY[d] == human.y) {
+                    reply = branches[d].pending;
+                    branches[d].pending = null;
+                }
+            }
+            cancel();
+        }
+        if (reply == null) return false;
+
+        try {
+            Reply r = reply.get();
+            cpu.x = r.x;
+            cpu.y = r.y;
+            committedStats = r.stats;
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    // What the branch behind the last committed reply spent on it
+    public MoveStats getCommittedStats() {
+        return committedStats;
+    }
+
+    public synchronized void cancel() {
+        for (Branch b : branches) {
+            if (b.pending != null) b.pending.cancel(false);
+            b.pending = null;
+        }
+        hx = hy = -1;
+    }
+
+    public void shutdown() {
+        cancel();
+        for (Branch b : branches) {
+            b.worker.submit(() -> {
+                if (b.engine != null) b.engine.shutdown();
+            });
+            b.worker.shutdown();
+        }
+    }
+
+    // ================= Branches =================
+    // One board copy and engine per direction the human can step in,
+    // touched only by the branch's own thread
+    private final class Branch {
+        private final ExecutorService worker;
+        private final Player human = new Player(0, 0);
+        private final Player cpu = new Player(0, 0);
+        private Maze board;
+        private AIEngine engine;
+
+        Future<Reply> pending;
+
+        Branch(int d) {
+            this.worker = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "speculation-" + d);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+
+        void submit(Maze snapshot, int nx, int ny, Player from, int movesRemaining) {
+            int cx = from.x, cy = from.y;
+            pending = worker.submit(() -> {
+                if (board == null) {
+                    board = snapshot.copy();
+                    engine = new AIEngine(board);
+                    engine.setOpponent(human);
+                } else {
+                    board.copyStateFrom(snapshot);
+                }
+                human.x = nx;
+                human.y = ny;
+                board.collect(nx, ny);
+                cpu.x = cx;
+                cpu.y = cy;
+                engine.move(cpu, algorithm, movesRemaining);
+                MoveStats stats = new MoveStats();
+                stats.copyFrom(engine.getLastMoveStats());
+                return new Reply(cpu.x, cpu.y, stats);
+            });
+        }
+    }
+
+    private static final class Reply {
+        final int x, y;
+        final MoveStats stats;
+
+        Reply(int x, int y, MoveStats stats) {
+            this.x = x;
+            this.y = y;
+            this.stats = stats;
+        }
+    }
+}
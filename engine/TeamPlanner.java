@@ -0,0 +1,424 @@
+package engine;
+
+import java.util.Arrays;
+import model.*;
+import util.Config;
+
+// Moves a team of CPU players with one shared search per turn.
+//
+// A single flood from every CPU at once tracks, per cell, a bit mask of
+// the CPUs that have reached it (bit i for CPU i), so one level-by-level
+// pass gives each CPU's distance to every gem it finds. The Hungarian
+// algorithm then gives the CPUs different gems, maximising the summed
+// value per step that selectBestCoin scores a single CPU by. A second
+// flood, seeded from the assigned gems, finds each CPU's next step. That
+// is two floods per turn whatever the team size, up to MAX_PLAYERS.
+public class TeamPlanner {
+
+    public static final int MAX_PLAYERS = 64;    // one bit each in a long
+
+    private static final int[] DX = {-1, 1, 0, 0};
+    private static final int[] DY = {0, 0, -1, 1};
+
+    private final Maze maze;
+    private final int size;
+
+    // Flood state. seen[cell] is only valid where stamp[cell] == epoch;
+    // active and pending hold the bits that arrived at the current and
+    // next level, and are all zero between floods.
+    private final int[] stamp;
+    private final long[] seen;
+    private long[] active, pending;
+    private int[] frontier, next;
+    private int frontierSize, nextSize;
+    private int epoch;
+
+    // Gems found by the last sweep: slot -> cell, and each CPU's
+    // distance to each slot (-1 when it did not get there)
+    private final int[] slot;
+    private final int[] slotStamp;
+    private int[] gemCells = new int[16];
+    private int[][] distance = new int[0][];
+    private int gemCount;
+    private int[] found = new int[0];
+
+    // Chosen gem slot and next cell for each CPU, -1 for none
+    private int[] target = new int[0];
+    private int[] step = new int[0];
+
+    // Hungarian algorithm work arrays, grown on demand
+    private double[] u = new double[0], v = new double[0], minv = new double[0];
+    private int[] p = new int[0], way = new int[0], match = new int[0];
+    private boolean[] used = new boolean[0];
+
+    private final MoveStats lastMove = new MoveStats();
+    private final MoveStats totals = new MoveStats();
+    private long expanded;
+    private int peak;
+
+    public TeamPlanner(Maze maze) {
+        this.maze = maze;
+        this.size = maze.size;
+        int cells = size * size;
+        this.stamp = new int[cells];
+        this.seen = new long[cells];
+        this.active = new long[cells];
+        this.pending = new long[cells];
+        this.frontier = new int[cells];
+        this.next = new int[cells];
+        this.slot = new int[cells];
+        this.slotStamp = new int[cells];
+    }
+
+    public MoveStats getLastMoveStats() {
+        return lastMove;
+    }
+
+    public MoveStats getTotalStats() {
+        return totals;
+    }
+
+    // The gem cell (x * size + y) CPU i is heading for, or -1
+    public int target(int i) {
+        return i < target.length && target[i] >= 0 ? gemCells[target[i]] : -1;
+    }
+
+    // Moves every CPU one step towards its assigned gem
+    public void move(Player[] cpus) {
+        int n = cpus.length;
+        if (n > MAX_PLAYERS) {
+            throw new IllegalArgumentException("At most " + MAX_PLAYERS + " CPU players, got " + n);
+        }
+        long bytesBefore = MoveStats.threadAllocatedBytes();
+        long start = System.nanoTime();
+        expanded = 0;
+        peak = 0;
+
+        ensurePlayers(n);
+        sweepGems(cpus);
+        assign(n);
+        sweepSteps(cpus);
+        for (int i = 0; i < n; i++) {
+            if (step[i] < 0) continue;
+            cpus[i].x = step[i] / size;
+            cpus[i].y = step[i] % size;
+        }
+
+        long nanos = System.nanoTime() - start;
+        long bytes = MoveStats.threadAllocatedBytes();
+        lastMove.reset();
+        lastMove.moves = 1;
+        lastMove.nanos = nanos;
+        lastMove.maxNanos = nanos;
+        lastMove.bytesAllocated = bytesBefore < 0 ? -1 : bytes - bytesBefore;
+        lastMove.nodesExpanded = expanded;
+        lastMove.queuePeak = peak;
+        totals.add(lastMove);
+    }
+
+    private void ensurePlayers(int n) {
+        if (target.length == n) return;
+        target = new int[n];
+        step = new int[n];
+        found = new int[n];
+        distance = new int[n][gemCells.length];
+    }
+
+    // ================= Gem Sweep =================
+    // Floods from all CPUs until each has found enough gems (at least one
+    // per CPU, so a full assignment always exists) or the flood dies out.
+    // Whole levels are finished, so every gem at the last distance counts.
+    private void sweepGems(Player[] cpus) {
+        int n = cpus.length;
+        int wanted = Math.max(n, Config.TEAM_CANDIDATE_GEMS);
+        long all = n == 64 ? -1L : (1L << n) - 1;
+        Arrays.fill(found, 0);
+        gemCount = 0;
+
+        beginFlood();
+        for (int i = 0; i < n; i++) reach(cpus[i].x * size + cpus[i].y, 1L << i);
+        advance();
+
+        for (int level = 0; frontierSize > 0; level++) {
+            long satisfied = 0;
+            for (int k = 0; k < frontierSize; k++) {
+                int cell = frontier[k];
+                if (!maze.hasCash(cell / size, cell % size)) continue;
+                int s = gemSlot(cell, n);
+                for (long bits = active[cell]; bits != 0; bits &= bits - 1) {
+                    int i = Long.numberOfTrailingZeros(bits);
+                    distance[i][s] = level;
+                    found[i]++;
+                }
+            }
+            for (int i = 0; i < n; i++) if (found[i] >= wanted) satisfied |= 1L << i;
+            if (satisfied == all) break;
+            expandLevel();
+        }
+        endFlood();
+    }
+
+    private int gemSlot(int cell, int n) {
+        if (slotStamp[cell] == epoch) return slot[cell];
+        if (gemCount == gemCells.length) {
+            gemCells = Arrays.copyOf(gemCells, gemCount * 2);
+            for (int i = 0; i < distance.length; i++) {
+                distance[i] = Arrays.copyOf(distance[i], gemCells.length);
+            }
+        }
+        for (int i = 0; i < n; i++) distance[i][gemCount] = -1;
+        slotStamp[cell] = epoch;
+        slot[cell] = gemCount;
+        gemCells[gemCount] = cell;
+        return gemCount++;
+    }
+
+    // ================= Assignment =================
+    // Different gems for different CPUs where the sweep found enough;
+    // a CPU left over (more CPUs than gems) chases its own best gem.
+    private void assign(int n) {
+        Arrays.fill(target, -1);
+        if (gemCount == 0) return;
+
+        if (n <= gemCount) {
+            hungarian(n, gemCount, false);
+            for (int i = 0; i < n; i++) target[i] = match[i];
+        } else {
+            hungarian(gemCount, n, true);
+            for (int s = 0; s < gemCount; s++) target[match[s]] = s;
+        }
+
+        for (int i = 0; i < n; i++) {
+            if (target[i] >= 0 && distance[i][target[i]] < 0) target[i] = -1;
+            if (target[i] >= 0) continue;
+            double best = 0;
+            for (int s = 0; s < gemCount; s++) {
+                if (cost(i, s) < best) {
+                    best = cost(i, s);
+                    target[i] = s;
+                }
+            }
+        }
+    }
+
+    // Minus selectBestCoin's score, value over path length in cells (the
+    // steps plus one); 0 for a gem out of reach
+    private double cost(int i, int s) {
+        int d = distance[i][s];
+        if (d < 0) return 0;
+        int cell = gemCells[s];
+        return -(double) maze.cashAt(cell / size, cell % size) / (d + 1);
+    }
+
+    // Minimum cost matching of rows to distinct columns (rows <= cols),
+    // O(rows^2 * cols); match[row] is the column. Rows are gems and
+    // columns CPUs when transposed.
+    private void hungarian(int rows, int cols, boolean transposed) {
+        if (p.length < cols + 1) {
+            v = new double[cols + 1];
+            minv = new double[cols + 1];
+            p = new int[cols + 1];
+            way = new int[cols + 1];
+            used = new boolean[cols + 1];
+        }
+        if (u.length < rows + 1) u = new double[rows + 1];
+        if (match.length < rows) match = new int[rows];
+        Arrays.fill(u, 0, rows + 1, 0);
+        Arrays.fill(v, 0, cols + 1, 0);
+        Arrays.fill(p, 0, cols + 1, 0);
+
+        for (int i = 1; i <= rows; i++) {
+            p[0] = i;
+            int j0 = 0;
+            Arrays.fill(minv, 0, cols + 1, Double.POSITIVE_INFINITY);
+            Arrays.fill(used, 0, cols + 1, false);
+            do {
+                used[j0] = true;
+                int i0 = p[j0], j1 = 0;
+                double delta = Double.POSITIVE_INFINITY;
+                for (int j = 1; j <= cols; j++) {
+                    if (used[j]) continue;
+                    double c = (transposed ? cost(j - 1, i0 - 1) : cost(i0 - 1, j - 1)) - u[i0] - v[j];
+                    if (c < minv[j]) {
+                        minv[j] = c;
+                        way[j] = j0;
+                    }
+                    if (minv[j] < delta) {
+                        delta = minv[j];
+                        j1 = j;
+                    }
+                }
+                for (int j = 0; j <= cols; j++) {
+                    if (used[j]) {
+                        u[p[j]] += delta;
+                        v[j] -= delta;
+                    } else {
+                        minv[j] -= delta;
+                    }
+                }
+                j0 = j1;
+            } while (p[j0] != 0);
+            do {
+                int j1 = way[j0];
+                p[j0] = p[j1];
+                j0 = j1;
+            } while (j0 != 0);
+        }
+        for (int j = 1; j <= cols; j++) {
+            if (p[j] != 0) match[p[j] - 1] = j - 1;
+        }
+    }
+
+    // ================= Step Sweep =================
+    // Floods back from the assigned gems, bit i seeded at CPU i's gem.
+    // When bit i reaches CPU i at some level, a neighbour that had it a
+    // level earlier is one step closer to the gem.
+    private void sweepSteps(Player[] cpus) {
+        int n = cpus.length;
+        long waiting = 0;
+        Arrays.fill(step, -1);
+
+        beginFlood();
+        for (int i = 0; i < n; i++) {
+            if (target[i] < 0) continue;
+            reach(gemCells[target[i]], 1L << i);
+            waiting |= 1L << i;
+        }
+        advance();
+
+        for (int level = 0; frontierSize > 0 && waiting != 0; level++) {
+            for (long bits = waiting; bits != 0; bits &= bits - 1) {
+                int i = Long.numberOfTrailingZeros(bits);
+                int cell = cpus[i].x * size + cpus[i].y;
+                long bit = 1L << i;
+                if ((active[cell] & bit) == 0) continue;
+                step[i] = level == 0 ? cell : previous(cell, bit);
+                waiting &= ~bit;
+            }
+            if (waiting != 0) expandLevel();
+        }
+        endFlood();
+    }
+
+    // A neighbour the bit reached before this level
+    private int previous(int cell, long bit) {
+        int x = cell / size, y = cell % size;
+        for (int d = 0; d < 4; d++) {
+            int nx = x + DX[d], ny = y + DY[d];
+            if (!maze.open(nx, ny)) continue;
+            int nb = nx * size + ny;
+            if (stamp[nb] == epoch && (seen[nb] & bit) != 0 && (active[nb] & bit) == 0) return nb;
+        }
+        return cell;
+    }
+
+    // ================= Flood =================
+    private void beginFlood() {
+        if (++epoch == 0) {
+            Arrays.fill(stamp, 0);
+            Arrays.fill(slotStamp, 0);
+            epoch = 1;
+        }
+        frontierSize = 0;
+        nextSize = 0;
+    }
+
+    // Adds bits to the cell, queueing it for the next level if any are new
+    private void reach(int cell, long bits) {
+        if (stamp[cell] != epoch) {
+            stamp[cell] = epoch;
+            seen[cell] = 0;
+        }
+        long fresh = bits & ~seen[cell];
+        if (fresh == 0) return;
+        seen[cell] |= fresh;
+        if (pending[cell] == 0) next[nextSize++] = cell;
+        pending[cell] |= fresh;
+    }
+
+    // Spreads the current level's new bits to the neighbours
+    private void expandLevel() {
+        for (int k = 0; k < frontierSize; k++) {
+            int cell = frontier[k];
+            long bits = active[cell];
+            active[cell] = 0;
+            int x = cell / size, y = cell % size;
+            for (int d = 0; d < 4; d++) {
+                int nx = x + DX[d], ny = y + DY[d];
+                if (maze.open(nx, ny)) reach(nx * size + ny, bits);
+            }
+        }
+        expanded += frontierSize;
+        frontierSize = 0;
+        advance();
+    }
+
+    // The queued level becomes the current one
+    private void advance() {
+        int[] cells = frontier;
+        frontier = next;
+        next = cells;
+        long[] masks = active;
+        active = pending;
+        pending = masks;
+        frontierSize = nextSize;
+        nextSize = 0;
+        peak = Math.max(peak, frontierSize);
+    }
+
+    private void endFlood() {
+        for (int k = 0; k < frontierSize; k++) active[frontier[k]] = 0;
+        for (int k = 0; k < nextSize; k++) pending[next[k]] = 0;
+        expanded += frontierSize;
+        frontierSize = 0;
+        nextSize = 0;
+    }
+
+    // ================= Start Positions =================
+    // Open cells for n CPUs, reachable from the bottom-right corner where
+    // the first one starts, spread along the bottom and right edges away
+    // from the human's corner. Returns {x, y} pairs.
+    public static int[][] startPositions(Maze maze, int n) {
+        int size = maze.size;
+        boolean[] reachable = new boolean[size * size];
+        int[] queue = new int[size * size];
+        int head = 0, tail = 0;
+        int corner = (size - 1) * size + (size - 1);
+        reachable[corner] = true;
+        queue[tail++] = corner;
+        while (head < tail) {
+            int cell = queue[head++];
+            int x = cell / size, y = cell % size;
+            for (int d = 0; d < 4; d++) {
+                int nx = x + DX[d], ny = y + DY[d];
+                if (maze.open(nx, ny) && !reachable[nx * size + ny]) {
+                    reachable[nx * size + ny] = true;
+                    queue[tail++] = nx * size + ny;
+                }
+            }
+        }
+
+        int[][] starts = new int[n][];
+        boolean[] taken = new boolean[size * size];
+        int spacing = n / 2 + 1;
+        for (int k = 0; k < n; k++) {
+            int offset = (k + 1) / 2 * (size - 1) / spacing;
+            int ax = k % 2 == 1 ? size - 1 : size - 1 - offset;
+            int ay = k % 2 == 1 ? size - 1 - offset : size - 1;
+
+            int best = corner, bestDist = Integer.MAX_VALUE;
+            for (int q = 0; q < tail; q++) {
+                int cell = queue[q];
+                if (taken[cell] && tail > n) continue;
+                int dist = Math.abs(cell / size - ax) + Math.abs(cell % size - ay);
+                if (dist < bestDist) {
+                    bestDist = dist;
+                    best = cell;
+                }
+            }
+            taken[best] = true;
+            starts[k] = new int[]{best / size, best % size};
+        }
+        return starts;
+    }
+}
@@ -0,0 +1,102 @@
+package engine;
+
+import java.util.Arrays;
+
+// Fixed-size hash table of searched game states, keyed by Zobrist hash.
+//
+// Each slot holds one state: the full key (to reject other states that
+// land on the same slot), the depth it was searched to, its value and
+// whether that value is exact or only a bound from an alpha-beta cutoff,
+// and the best move found. A key can live in either slot of a pair. A
+// new entry replaces the same state if the pair has it, else an empty
+// slot, else the older (from an earlier search, see newSearch()) or the
+// shallower of the two; so the table never grows and old or shallow
+// results are what gets evicted.
+//
+// Not thread-safe: each searching engine keeps its own.
+final class TranspositionTable {
+
+    static final byte EXACT = 0;
+    static final byte LOWER = 1;     // value is at least this (beta cutoff)
+    static final byte UPPER = 2;     // value is at most this (no move raised alpha)
+
+    private final int mask;
+    private final long[] keys;
+    private final int[] values;
+    private final int[] moves;
+    private final short[] depths;
+    private final byte[] bounds;
+    private final byte[] ages;
+    private byte age = 1;            // 0 marks an empty slot
+
+    TranspositionTable(int bits) {
+        int capacity = 1 << bits;
+        this.mask = capacity - 1;   // capacity is even, so slot ^ 1 pairs up
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        this.moves = new int[capacity];
+        this.depths = new short[capacity];
+        this.bounds = new byte[capacity];
+        this.ages = new byte[capacity];
+    }
+
+    // Empties every slot
+    void clear() {
+        Arrays.fill(ages, (byte) 0);
+        age = 1;
+    }
+
+    // Entries stored from now on outrank the ones already there
+    void newSearch() {
+        if (++age == 0) age = 1;
+    }
+
+    // The slot holding key, or -1
+    int probe(long key) {
+        int slot = (int) key & mask;
+        if (ages[slot] == 0 || keys[slot] != key) {
+            slot ^= 1;
+            if (ages[slot] == 0 || keys[slot] != key) return -1;
+        }
+        return slot;
+    }
+
+    int depth(int slot) {
+        return depths[slot];
+    }
+
+    int value(int slot) {
+        return values[slot];
+    }
+
+    byte bound(int slot) {
+        return bounds[slot];
+    }
+
+    int move(int slot) {
+        return moves[slot];
+    }
+
+    void store(long key, int depth, int value, byte bound, int move) {
+        int slot = (int) key & mask;
+        int other = slot ^ 1;
+        boolean taken = ages[slot] != 0 && keys[slot] != key;
+        if (ages[other] != 0 && keys[other] == key
+                || taken && (ages[other] == 0 || worse(other, slot))) {
+            slot = other;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        moves[slot] = move;
+        depths[slot] = (short) depth;
+        bounds[slot] = bound;
+        ages[slot] = age;
+    }
+
+    // True if slot a is the one to give up: from an older search, or as
+    // old and searched no deeper
+    private boolean worse(int a, int b) {
+        if (ages[a] != ages[b]) return ages[a] != age;
+        return depths[a] <= depths[b];
+    }
+}
@@ -0,0 +1,206 @@
+package model;
+
+import java.util.Arrays;
+
+// The maze's open cells as bit rows, for floods over big grids. Row x is
+// `words` longs and cell (x, y) is bit y & 63 of word y >> 6, so one
+// shift, OR and AND-NOT moves a flood front across 64 cells at a time
+// instead of queueing them one by one. Sets of cells (visited, targets,
+// results) use the same layout, from newSet().
+//
+// Walls are read when the board is built; load() rereads them after they
+// change. The scratch sets make an instance single-threaded.
+public final class BitBoard {
+
+    public final int size;
+    public final int words;
+    private final long[] open;
+
+    // Scratch for distances()
+    private final long[] frontier, next, seen, found;
+
+    public BitBoard(Maze maze) {
+        this.size = maze.size;
+        this.words = (size + 63) >>> 6;
+        this.open = newSet();
+        load(maze);
+        this.frontier = newSet();
+        this.next = newSet();
+        this.seen = newSet();
+        this.found = newSet();
+    }
+
+    // Rereads the walls of a maze the same size
+    public void load(Maze maze) {
+        Arrays.fill(open, 0);
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                if (maze.open(x, y)) add(open, x, y);
+            }
+        }
+    }
+
+    public long[] newSet() {
+        return new long[size * words];
+    }
+
+    public boolean contains(long[] set, int x, int y) {
+        return (set[x * words + (y >>> 6)] & (1L << y)) != 0;
+    }
+
+    public void add(long[] set, int x, int y) {
+        set[x * words + (y >>> 6)] |= 1L << y;
+    }
+
+    // Fills set with the cells holding a gem
+    public long[] gems(Maze maze, long[] set) {
+        Arrays.fill(set, 0);
+        for (int k = 0; k < maze.gemSlots(); k++) {
+            int cell = maze.gem(k);
+            if (cell >= 0) add(set, cell / size, cell % size);
+        }
+        return set;
+    }
+
+    // ================= Reachability =================
+    // Every open cell connected to (sx, sy). Each row is filled along its
+    // open runs from what the row above (on the way down) or below (on the
+    // way up) already reached, until a full down-and-up pass adds nothing.
+    public long[] reachable(int sx, int sy) {
+        long[] reached = newSet();
+        if (!contains(open, sx, sy)) return reached;
+        add(reached, sx, sy);
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int x = 0; x < size; x++) changed |= fillRow(reached, x, x - 1);
+            for (int x = size - 1; x >= 0; x--) changed |= fillRow(reached, x, x + 1);
+        }
+        return reached;
+    }
+
+    // Grows row x of the set from itself and row from; true if it grew
+    private boolean fillRow(long[] set, int x, int from) {
+        int row = x * words;
+        int src = from >= 0 && from < size ? from * words : -1;
+        boolean grew = false;
+
+        // Towards higher y, carrying across word boundaries
+        long carry = 0;
+        for (int w = 0; w < words; w++) {
+            long o = open[row + w];
+            long g = (set[row + w] | (src >= 0 ? set[src + w] : 0) | carry) & o;
+            g = fillUp(g, o);
+            carry = g >>> 63;
+            if (g != set[row + w]) {
+                set[row + w] |= g;
+                grew = true;
+            }
+        }
+        // Towards lower y
+        carry = 0;
+        for (int w = words - 1; w >= 0; w--) {
+            long o = open[row + w];
+            long g = fillDown((set[row + w] | carry) & o, o);
+            carry = (g & 1) << 63;
+            if (g != set[row + w]) {
+                set[row + w] |= g;
+                grew = true;
+            }
+        }
+        return grew;
+    }
+
+    // Spreads the bits of g towards bit 63 along runs of ones in p
+    // (Kogge-Stone occluded fill); g must lie inside p
+    private static long fillUp(long g, long p) {
+        g |= p & (g << 1);
+        p &= p << 1;
+        g |= p & (g << 2);
+        p &= p << 2;
+        g |= p & (g << 4);
+        p &= p << 4;
+        g |= p & (g << 8);
+        p &= p << 8;
+        g |= p & (g << 16);
+        p &= p << 16;
+        return g | (p & (g << 32));
+    }
+
+    private static long fillDown(long g, long p) {
+        g |= p & (g >>> 1);
+        p &= p >>> 1;
+        g |= p & (g >>> 2);
+        p &= p >>> 2;
+        g |= p & (g >>> 4);
+        p &= p >>> 4;
+        g |= p & (g >>> 8);
+        p &= p >>> 8;
+        g |= p & (g >>> 16);
+        p &= p >>> 16;
+        return g | (p & (g >>> 32));
+    }
+
+    // ================= Distances =================
+    // Level-by-level BFS from (sx, sy). For each target cell it reaches,
+    // out[x * size + y] is its distance in steps; the returned set (valid
+    // until the next call) says which targets those are. Stops after the
+    // level on which the flood has covered budget cells, so whole levels
+    // are always finished. Only the rows the front spans are touched.
+    public long[] distances(int sx, int sy, long[] targets, int[] out, int budget) {
+        Arrays.fill(frontier, 0);
+        Arrays.fill(seen, 0);
+        Arrays.fill(found, 0);
+        if (!contains(open, sx, sy)) return found;
+        add(frontier, sx, sy);
+        add(seen, sx, sy);
+
+        int lo = sx, hi = sx;
+        long covered = 0;
+        for (int level = 0; lo <= hi; level++) {
+            for (int x = lo; x <= hi; x++) {
+                for (int w = 0; w < words; w++) {
+                    int i = x * words + w;
+                    long f = frontier[i];
+                    covered += Long.bitCount(f);
+                    for (long hits = f & targets[i]; hits != 0; hits &= hits - 1) {
+                        int y = (w << 6) + Long.numberOfTrailingZeros(hits);
+                        out[x * size + y] = level;
+                    }
+                    found[i] |= f & targets[i];
+                }
+            }
+            if (covered >= budget) break;
+
+            int nlo = Integer.MAX_VALUE, nhi = -1;
+            for (int x = Math.max(0, lo - 1); x <= Math.min(size - 1, hi + 1); x++) {
+                int row = x * words;
+                boolean any = false;
+                for (int w = 0; w < words; w++) {
+                    int i = row + w;
+                    long f = frontier[i];
+                    long spread = (f << 1) | (f >>> 1);
+                    if (w > 0) spread |= frontier[i - 1] >>> 63;
+                    if (w + 1 < words) spread |= frontier[i + 1] << 63;
+                    if (x > 0) spread |= frontier[i - words];
+                    if (x + 1 < size) spread |= frontier[i + words];
+                    long n = spread & open[i] & ~seen[i];
+                    next[i] = n;
+                    seen[i] |= n;
+                    any |= n != 0;
+                }
+                if (any) {
+                    nlo = Math.min(nlo, x);
+                    nhi = x;
+                }
+            }
+            for (int x = Math.max(0, lo - 1); x <= Math.min(size - 1, hi + 1); x++) {
+                System.arraycopy(next, x * words, frontier, x * words, words);
+            }
+            lo = nlo;
+            hi = nhi;
+        }
+        return found;
+    }
+}
@@ -0,0 +1,173 @@
+package model;
+
+import util.Config;
+
+// Grid-bucket spatial index over a maze's gems, for queries that should
+// only touch the gems near a cell.
+//
+// The board is cut into square buckets of Config.GEM_BUCKET_SIZE cells.
+// Each bucket keeps how many gems of each type it holds, so a query knows
+// which buckets are empty and the richest gem a bucket can offer without
+// looking inside; only buckets that can still matter are scanned, cell
+// by cell, on the maze's board. Maze updates the counts on every collect
+// and reset, in O(1).
+public final class GemIndex {
+
+    private static final int TYPES = Maze.GemType.values().length;
+
+    private final Maze maze;
+    private final int size;
+    public final int bucketSize;
+    public final int buckets;          // per side
+    private final int[] count;         // gems per bucket
+    private final int[] typeCount;     // per bucket and GemType ordinal
+    private final int[] typeTotal;     // per GemType ordinal, whole board
+    private int[] nearestDist = new int[0];
+
+    GemIndex(Maze maze) {
+        this.maze = maze;
+        this.size = maze.size;
+        this.bucketSize = Math.max(1, Config.GEM_BUCKET_SIZE);
+        this.buckets = (size + bucketSize - 1) / bucketSize;
+        this.count = new int[buckets * buckets];
+        this.typeCount = new int[buckets * buckets * TYPES];
+        this.typeTotal = new int[TYPES];
+    }
+
+    // ================= Maintenance =================
+    void added(int x, int y, int value) {
+        int b = bucket(x, y);
+        int t = value / 100 - 1;
+        count[b]++;
+        typeCount[b * TYPES + t]++;
+        typeTotal[t]++;
+    }
+
+    void removed(int x, int y, int value) {
+        int b = bucket(x, y);
+        int t = value / 100 - 1;
+        count[b]--;
+        typeCount[b * TYPES + t]--;
+        typeTotal[t]--;
+    }
+
+    void copyFrom(GemIndex other) {
+        System.arraycopy(other.count, 0, count, 0, count.length);
+        System.arraycopy(other.typeCount, 0, typeCount, 0, typeCount.length);
+        System.arraycopy(other.typeTotal, 0, typeTotal, 0, TYPES);
+    }
+
+    private int bucket(int x, int y) {
+        return (x / bucketSize) * buckets + y / bucketSize;
+    }
+
+    // Value of the richest gem in bucket b, 0 when it is empty
+    private int maxValue(int b) {
+        for (int t = TYPES - 1; t >= 0; t--) {
+            if (typeCount[b * TYPES + t] > 0) return (t + 1) * 100;
+        }
+        return 0;
+    }
+
+    // Value of the richest gem on the board, 0 when none is left
+    public int maxValue() {
+        for (int t = TYPES - 1; t >= 0; t--) {
+            if (typeTotal[t] > 0) return (t + 1) * 100;
+        }
+        return 0;
+    }
+
+    // Fewest steps from (x, y) to any cell of bucket (bx, by), ignoring walls
+    private int lowerBound(int bx, int by, int x, int y) {
+        int x0 = bx * bucketSize, y0 = by * bucketSize;
+        int dx = Math.max(0, Math.max(x0 - x, x - (x0 + bucketSize - 1)));
+        int dy = Math.max(0, Math.max(y0 - y, y - (y0 + bucketSize - 1)));
+        return dx + dy;
+    }
+
+    // ================= Queries =================
+    // Up to k gems nearest to (x, y) by Manhattan distance, nearest first
+    // (ties by cell), written into out as cells (x * size + y); returns
+    // how many. Buckets are visited ring by ring until no further ring can
+    // hold anything nearer than the k-th found.
+    public int nearest(int x, int y, int k, int[] out) {
+        k = Math.min(k, out.length);
+        if (k <= 0) return 0;
+        if (nearestDist.length < k) nearestDist = new int[k];
+        int[] dist = nearestDist;
+        int n = 0;
+        int cx = x / bucketSize, cy = y / bucketSize;
+        for (int r = 0; r < buckets; r++) {
+            // Every cell of ring r is at least this far
+            int ringBound = r == 0 ? 0 : (r - 1) * bucketSize + 1;
+            if (n == k && ringBound > dist[k - 1]) break;
+            for (int bx = cx - r; bx <= cx + r; bx++) {
+                if (bx < 0 || bx >= buckets) continue;
+                int step = bx == cx - r || bx == cx + r ? 1 : 2 * r;
+                for (int by = cy - r; by <= cy + r; by += Math.max(1, step)) {
+                    if (by < 0 || by >= buckets || count[bx * buckets + by] == 0) continue;
+                    if (n == k && lowerBound(bx, by, x, y) > dist[k - 1]) continue;
+                    n = nearestIn(bx, by, x, y, k, out, dist, n);
+                }
+            }
+        }
+        return n;
+    }
+
+    // Adds the gems of one bucket to the sorted top k
+    private int nearestIn(int bx, int by, int x, int y, int k, int[] out, int[] dist, int n) {
+        int x1 = Math.min(size, (bx + 1) * bucketSize), y1 = Math.min(size, (by + 1) * bucketSize);
+        for (int i = bx * bucketSize; i < x1; i++) {
+            for (int j = by * bucketSize; j < y1; j++) {
+                if (!maze.hasCash(i, j)) continue;
+                int d = Math.abs(i - x) + Math.abs(j - y);
+                int cell = i * size + j;
+                if (n == k && (d > dist[k - 1] || d == dist[k - 1] && cell > out[k - 1])) continue;
+                int p = n == k ? k - 1 : n++;
+                while (p > 0 && (dist[p - 1] > d || dist[p - 1] == d && out[p - 1] > cell)) {
+                    dist[p] = dist[p - 1];
+                    out[p] = out[p - 1];
+                    p--;
+                }
+                dist[p] = d;
+                out[p] = cell;
+            }
+        }
+        return n;
+    }
+
+    // Value-weighted range query: every gem whose value over (Manhattan
+    // distance from (x, y) + 1) is at least minScore, written into out as
+    // cells in no particular order. That is a radius of
+    // value / minScore - 1 steps, wider for richer gems; buckets whose
+    // richest gem cannot reach are skipped unscanned. Returns how many
+    // were found, or -1 when there are more than fit in out.
+    public int within(int x, int y, double minScore, int[] out) {
+        int top = maxValue();
+        if (top == 0) return 0;
+        // One step of slack for rounding; the exact test is per gem
+        int radius = minScore <= 0 ? 2 * size : (int) Math.min(Math.floor(top / minScore), 2.0 * size);
+        int bx0 = Math.max(0, (x - radius) / bucketSize), bx1 = Math.min(buckets - 1, (x + radius) / bucketSize);
+        int by0 = Math.max(0, (y - radius) / bucketSize), by1 = Math.min(buckets - 1, (y + radius) / bucketSize);
+
+        int n = 0;
+        for (int bx = bx0; bx <= bx1; bx++) {
+            for (int by = by0; by <= by1; by++) {
+                int b = bx * buckets + by;
+                if (count[b] == 0) continue;
+                if ((double) maxValue(b) / (lowerBound(bx, by, x, y) + 1) < minScore) continue;
+                int i1 = Math.min(size, (bx + 1) * bucketSize), j1 = Math.min(size, (by + 1) * bucketSize);
+                for (int i = bx * bucketSize; i < i1; i++) {
+                    for (int j = by * bucketSize; j < j1; j++) {
+                        int value = maze.cashAt(i, j);
+                        if (value == 0) continue;
+                        if ((double) value / (Math.abs(i - x) + Math.abs(j - y) + 1) < minScore) continue;
+                        if (n == out.length) return -1;
+                        out[n++] = i * size + j;
+                    }
+                }
+            }
+        }
+        return n;
+    }
+}
@@ -3,17 +3,64 @@ package model;
 import java.util.*;
 import util.Difficulty;
 
+// The board is one byte per cell, row-major, with a one-cell wall border
+// around it: WALL_CELL, EMPTY_CELL, or for a gem its GemType ordinal + 1
+// (so the byte times 100 is its cash). Cell (x, y) is at
+// (x + 1) * stride + y + 1, and every cell on the board has all four
+// neighbours in the array, so open() needs no bounds tests. A
+// 10000 x 10000 board is 100 MB of cells. On top of that come four bytes
+// per gem in gemList (grown by doubling) and about 10 MB of GemIndex
+// buckets, about 245 MB in all on EASY, where 30% of the cells start
+// with a gem.
+//
+// Rather than a second copy of the board, the initial state is kept as
+// an undo log of every cell changed since it was saved, which
+// restoreState plays back.
 public class Maze {
 
+    private static final byte WALL_CELL = -1;
+    private static final byte EMPTY_CELL = 0;
+    private static final GemType[] GEM_TYPES = GemType.values();
+
     public int size;
-    public CellType[][] grid;
-    public int[][] cash;
-    private int[][] initialCash;
-    private CellType[][] initialGrid;
-    public GemType[][] gems;
+    public final int stride;
+    private byte[] cells;
+
+    // Cells changed since saveInitialState and what they held then
+    private int[] changedAt = new int[16];
+    private byte[] changedFrom = new byte[16];
+    private int changes;
 
     private Difficulty difficulty = Difficulty.MEDIUM;
 
+    // Bumped whenever gems change, so cached AI plans can tell they are stale
+    private int version;
+
+    // Bumped whenever a wall appears or goes (restoreState undoes the
+    // paths the constructor carved), for caches that assume fixed walls
+    private int wallVersion;
+
+    // Zobrist hash of which cells hold a gem, kept up to date by collect,
+    // restoreState and copyStateFrom
+    private long gemHash;
+
+    // Gems left: how many, their total value, and their cells
+    // (x * size + y) in gemList. A collected gem stays in gemList until
+    // more than half of the list is collected ones, then the list is
+    // compacted, so collect stays O(1) amortised without a slot per cell.
+    private int gemCount;
+    private long gemValue;
+    private int[] gemList = new int[16];
+    private int gemListLength;
+    private GemIndex gemIndex;
+
+    // Notified for every cell changed after construction
+    public interface CellListener {
+        void cellChanged(int x, int y);
+    }
+
+    private final List<CellListener> listeners = new ArrayList<>();
+
     // NEW: probabilities based on difficulty
     private double wallProbability;
     private double cashProbability;
@@ -23,22 +70,46 @@ public class Maze {
     }
 
     public Maze(int size, Difficulty difficulty) {
+        this(size, difficulty, new Random());
+    }
+
+    // Same seed, same maze (used by the batch simulator)
+    public Maze(int size, Difficulty difficulty, long seed) {
+        this(size, difficulty, new Random(seed));
+    }
+
+    private Maze(int size, Difficulty difficulty, Random r) {
         this.size = size;
+        this.stride = size + 2;
         this.difficulty = difficulty;
 
-        grid = new CellType[size][size];
-        cash = new int[size][size];
-        initialGrid = new CellType[size][size];
-        initialCash = new int[size][size];
-        gems = new GemType[size][size];
+        cells = new byte[stride * stride];
+        Arrays.fill(cells, WALL_CELL);
 
         setDifficultyParameters();
 
-        Random r = new Random();
         generateMaze(r);
         removeUnreachableGems();
         saveInitialState();
-        ensureConnectivity();
+        ensureConnectivity(r);
+        indexGems();
+    }
+
+    // Deep copy of another maze's board and initial state, without its listeners
+    private Maze(Maze other) {
+        this.size = other.size;
+        this.stride = other.stride;
+        this.difficulty = other.difficulty;
+        this.wallProbability = other.wallProbability;
+        this.cashProbability = other.cashProbability;
+
+        cells = other.cells.clone();
+        copyLog(other);
+        copyGems(other);
+    }
+
+    public Maze copy() {
+        return new Maze(this);
     }
 
     // ================= Difficulty Settings =================
@@ -93,94 +164,111 @@ public class Maze {
 
                 if (rand < wallProbability) {
 
-                    grid[i][j] = CellType.WALL;
-                    gems[i][j] = null;
+                    cells[index(i, j)] = WALL_CELL;
 
                 } else if (rand < wallProbability + cashProbability) {
 
-                    grid[i][j] = CellType.CASH;
                     int multiplier = r.nextInt(5) + 1;
-                    cash[i][j] = multiplier * 100;
-                    gems[i][j] = GemType.fromValue(cash[i][j]);
+                    cells[index(i, j)] = (byte) multiplier;
 
                 } else {
 
-                    grid[i][j] = CellType.EMPTY;
-                    gems[i][j] = null;
+                    cells[index(i, j)] = EMPTY_CELL;
                 }
             }
         }
 
         // Ensure start and end are empty
-        grid[0][0] = CellType.EMPTY;
-        grid[size - 1][size - 1] = CellType.EMPTY;
-        gems[0][0] = null;
-        gems[size - 1][size - 1] = null;
+        cells[index(0, 0)] = EMPTY_CELL;
+        cells[index(size - 1, size - 1)] = EMPTY_CELL;
     }
 
     // ================= Save Initial State =================
     private void saveInitialState() {
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                initialGrid[i][j] = grid[i][j];
-                initialCash[i][j] = cash[i][j];
-            }
+        changes = 0;
+    }
+
+    // Sets a cell, logging what it held first
+    private void set(int i, byte value) {
+        if (changes == changedAt.length) {
+            changedAt = Arrays.copyOf(changedAt, changes * 2);
+            changedFrom = Arrays.copyOf(changedFrom, changes * 2);
         }
+        changedAt[changes] = i;
+        changedFrom[changes++] = cells[i];
+        cells[i] = value;
+    }
+
+    private void copyLog(Maze other) {
+        changedAt = Arrays.copyOf(other.changedAt, Math.max(16, other.changes));
+        changedFrom = Arrays.copyOf(other.changedFrom, changedAt.length);
+        changes = other.changes;
     }
 
     // ================= Restore State =================
+    // Undoes the logged changes, newest first, so only changed cells are
+    // touched
     public void restoreState() {
+        compactGems();
+        while (changes > 0) {
+            int i = changedAt[--changes];
+            byte before = cells[i];
+            cells[i] = changedFrom[changes];
+            if (before <= 0 && cells[i] > 0) gemAdded(i);
+            if (before > 0 && cells[i] <= 0) gemRemoved(i, before);
+            if ((before == WALL_CELL) != (cells[i] == WALL_CELL)) wallVersion++;
+            if (before != cells[i]) fireCellChanged(row(i), col(i));
+        }
+        version++;
+    }
+
+    // ================= Copy State =================
+    // Makes the board match other (same size), initial state included.
+    // Always bumps the version, since the copy may have been taken at a
+    // different point in the game.
+    public void copyStateFrom(Maze other) {
         for (int i = 0; i < size; i++) {
+            int from = index(i, 0);
             for (int j = 0; j < size; j++) {
-                grid[i][j] = initialGrid[i][j];
-                cash[i][j] = initialCash[i][j];
-                gems[i][j] = (grid[i][j] == CellType.CASH)
-                        ? GemType.fromValue(cash[i][j])
-                        : null;
+                if (cells[from + j] != other.cells[from + j]) {
+                    if ((cells[from + j] == WALL_CELL) != (other.cells[from + j] == WALL_CELL)) wallVersion++;
+                    cells[from + j] = other.cells[from + j];
+                    fireCellChanged(i, j);
+                }
             }
         }
+        copyLog(other);
+        copyGems(other);
+        version++;
     }
 
-    // ================= Connectivity Check =================
-    private void ensureConnectivity() {
-
-        boolean[][] visited = new boolean[size][size];
-        Queue<int[]> queue = new LinkedList<>();
-        queue.add(new int[]{0, 0});
-        visited[0][0] = true;
-
-        int[] dx = {-1, 1, 0, 0};
-        int[] dy = {0, 0, -1, 1};
-
-        while (!queue.isEmpty()) {
-
-            int[] cur = queue.poll();
-            int x = cur[0], y = cur[1];
+    // ================= Change Listeners =================
+    public void addCellListener(CellListener listener) {
+        listeners.add(listener);
+    }
 
-            for (int d = 0; d < 4; d++) {
-                int nx = x + dx[d];
-                int ny = y + dy[d];
+    public void removeCellListener(CellListener listener) {
+        listeners.remove(listener);
+    }
 
-                if (valid(nx, ny) && !visited[nx][ny]) {
-                    visited[nx][ny] = true;
-                    queue.add(new int[]{nx, ny});
-                }
-            }
-        }
+    private void fireCellChanged(int x, int y) {
+        for (CellListener l : listeners) l.cellChanged(x, y);
+    }
 
-        if (!visited[size - 1][size - 1]) {
-            clearPath();
+    // ================= Connectivity Check =================
+    private void ensureConnectivity(Random r) {
+        BitBoard board = new BitBoard(this);
+        if (!board.contains(board.reachable(0, 0), size - 1, size - 1)) {
+            clearPath(r);
         }
     }
 
-    private void clearPath() {
+    private void clearPath(Random r) {
         int x = 0, y = 0;
-        Random r = new Random();
 
         while (x < size - 1 || y < size - 1) {
 
-            grid[x][y] = CellType.EMPTY;
-            gems[x][y] = null;
+            set(index(x, y), EMPTY_CELL);
 
             if (x < size - 1 && y < size - 1) {
                 if (r.nextBoolean()) x++;
@@ -192,30 +280,68 @@ public class Maze {
             }
         }
 
-        grid[size - 1][size - 1] = CellType.EMPTY;
-        gems[size - 1][size - 1] = null;
+        set(index(size - 1, size - 1), EMPTY_CELL);
+    }
+
+    // ================= Cell Encoding =================
+    // Position of (x, y) in the padded board; x and y may be -1 or size
+    public int index(int x, int y) {
+        return (x + 1) * stride + y + 1;
+    }
+
+    private int row(int i) {
+        return i / stride - 1;
+    }
+
+    private int col(int i) {
+        return i % stride - 1;
+    }
+
+    // The unpadded x * size + y of a padded index
+    private int cell(int i) {
+        return row(i) * size + col(i);
     }
 
     // ================= Utility Methods =================
     public boolean valid(int x, int y) {
         return x >= 0 && y >= 0 &&
                x < size && y < size &&
-               grid[x][y] != CellType.WALL;
+               cells[index(x, y)] != WALL_CELL;
+    }
+
+    // valid() without the bounds tests, for neighbour checks: x and y may
+    // be one step off the board, where the border is wall
+    public boolean open(int x, int y) {
+        return cells[(x + 1) * stride + y + 1] != WALL_CELL;
     }
 
     public boolean hasCash(int x, int y) {
-        return gems[x][y] != null;
+        return cells[index(x, y)] > 0;
+    }
+
+    // Value of the gem at (x, y), 0 if there is none
+    public int cashAt(int x, int y) {
+        byte b = cells[index(x, y)];
+        return b > 0 ? b * 100 : 0;
+    }
+
+    public CellType cellType(int x, int y) {
+        byte b = cells[index(x, y)];
+        return b == WALL_CELL ? CellType.WALL : b == EMPTY_CELL ? CellType.EMPTY : CellType.CASH;
     }
 
     public int collect(int x, int y) {
 
-        GemType type = gems[x][y];
+        int i = index(x, y);
+        byte b = cells[i];
 
-        if (type != null) {
-            int value = type.value;
-            cash[x][y] = 0;
-            gems[x][y] = null;
-            grid[x][y] = CellType.EMPTY;
+        if (b > 0) {
+            int value = GEM_TYPES[b - 1].value;
+            set(i, EMPTY_CELL);
+            gemRemoved(i, b);
+            if (gemListLength - gemCount > gemCount) compactGems();
+            version++;
+            fireCellChanged(x, y);
             return value;
         }
 
@@ -223,61 +349,113 @@ public class Maze {
     }
 
     public boolean anyCashLeft() {
-        for (int i = 0; i < size; i++)
-            for (int j = 0; j < size; j++)
-                if (gems[i][j] != null)
-                    return true;
-
-        return false;
+        return gemCount > 0;
     }
 
     public int getRemainingCashCount() {
-        int count = 0;
-        for (int i = 0; i < size; i++)
-            for (int j = 0; j < size; j++)
-                if (gems[i][j] != null)
-                    count++;
-        return count;
+        return gemCount;
+    }
+
+    public long getRemainingCashValue() {
+        return gemValue;
     }
 
     public GemType getGemType(int x, int y) {
-        return gems[x][y];
+        byte b = cells[index(x, y)];
+        return b > 0 ? GEM_TYPES[b - 1] : null;
+    }
+
+    public int getVersion() {
+        return version;
     }
-    private void removeUnreachableGems() {
 
-    boolean[][] visited = new boolean[size][size];
-    Queue<int[]> queue = new LinkedList<>();
+    public int getWallVersion() {
+        return wallVersion;
+    }
 
-    queue.add(new int[]{0, 0});
-    visited[0][0] = true;
+    // Zobrist hash of the remaining gems (see Zobrist.gem); equal boards
+    // hash equal however they got there
+    public long getGemHash() {
+        return gemHash;
+    }
 
-    int[] dx = {-1, 1, 0, 0};
-    int[] dy = {0, 0, -1, 1};
+    // ================= Gem Index =================
+    // Gems are read back as gem(k) for k below gemSlots(): the cell
+    // (x * size + y) of a gem, or -1 for a slot whose gem was collected.
+    // Slots stay put until the next collect or reset.
+    public int gemSlots() {
+        return gemListLength;
+    }
+
+    public int gem(int k) {
+        int cell = gemList[k];
+        return cells[index(cell / size, cell % size)] > 0 ? cell : -1;
+    }
 
-    while (!queue.isEmpty()) {
-        int[] cur = queue.poll();
-        int x = cur[0], y = cur[1];
+    // Buckets of the gems by position, for queries near a cell
+    public GemIndex getGemIndex() {
+        return gemIndex;
+    }
 
-        for (int d = 0; d < 4; d++) {
-            int nx = x + dx[d];
-            int ny = y + dy[d];
+    private void indexGems() {
+        gemIndex = new GemIndex(this);
+        gemHash = 0;
+        gemCount = 0;
+        gemValue = 0;
+        gemListLength = 0;
+        for (int i = 0; i < size; i++)
+            for (int j = 0; j < size; j++)
+                if (hasCash(i, j))
+                    gemAdded(index(i, j));
+    }
 
-            if (valid(nx, ny) && !visited[nx][ny]) {
-                visited[nx][ny] = true;
-                queue.add(new int[]{nx, ny});
-            }
+    private void gemAdded(int i) {
+        int cell = cell(i);
+        gemHash ^= Zobrist.gem(cell);
+        gemCount++;
+        gemValue += cells[i] * 100;
+        gemIndex.added(row(i), col(i), cells[i] * 100);
+        if (gemListLength == gemList.length) gemList = Arrays.copyOf(gemList, gemListLength * 2);
+        gemList[gemListLength++] = cell;
+    }
+
+    // The gem (byte b) at i is gone; its slot is dropped by compactGems
+    private void gemRemoved(int i, byte b) {
+        gemHash ^= Zobrist.gem(cell(i));
+        gemCount--;
+        gemValue -= b * 100;
+        gemIndex.removed(row(i), col(i), b * 100);
+    }
+
+    private void compactGems() {
+        int n = 0;
+        for (int k = 0; k < gemListLength; k++) {
+            if (gem(k) >= 0) gemList[n++] = gemList[k];
         }
+        gemListLength = n;
+    }
+
+    private void copyGems(Maze other) {
+        if (gemIndex == null) gemIndex = new GemIndex(this);
+        gemIndex.copyFrom(other.gemIndex);
+        gemHash = other.gemHash;
+        gemCount = other.gemCount;
+        gemValue = other.gemValue;
+        if (gemList.length < other.gemListLength) gemList = new int[other.gemList.length];
+        System.arraycopy(other.gemList, 0, gemList, 0, other.gemListLength);
+        gemListLength = other.gemListLength;
     }
+    private void removeUnreachableGems() {
+        BitBoard board = new BitBoard(this);
+        long[] reached = board.reachable(0, 0);
 
-    // Remove unreachable gems
-    for (int i = 0; i < size; i++) {
-        for (int j = 0; j < size; j++) {
-            if (gems[i][j] != null && !visited[i][j]) {
-                gems[i][j] = null;
-                cash[i][j] = 0;
-                grid[i][j] = CellType.EMPTY;
+        // Remove unreachable gems
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                if (hasCash(i, j) && !board.contains(reached, i, j)) {
+                    cells[index(i, j)] = EMPTY_CELL;
+                }
             }
         }
     }
-}
 }
\ No newline at end of file
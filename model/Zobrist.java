@@ -0,0 +1,47 @@
+package model;
+
+// Zobrist keys for hashing game states: one random 64-bit key per gem
+// cell, per CPU cell, per human cell and per move count, XORed together.
+// Taking or putting back a gem, or moving a player, changes the hash by
+// one or two XORs instead of a rehash of the board.
+//
+// Keys are derived from (role, index) by a SplitMix64 finaliser rather
+// than drawn into tables, so they cost no memory, are the same for every
+// maze size and in every copy of a board, and a hash computed in one
+// place (Maze) can be extended in another (the engine's GameState).
+public final class Zobrist {
+
+    public static final long CPU_TO_MOVE = mix(-1);
+
+    private Zobrist() {
+    }
+
+    public static long gem(int cell) {
+        return mix(cell * 8L);
+    }
+
+    public static long cpu(int cell) {
+        return mix(cell * 8L + 1);
+    }
+
+    public static long human(int cell) {
+        return mix(cell * 8L + 2);
+    }
+
+    public static long movesLeft(int moves) {
+        return mix(moves * 8L + 3);
+    }
+
+    // For anything else a key has to tell apart, e.g. which search made
+    // a decision
+    public static long tag(int n) {
+        return mix(n * 8L + 4);
+    }
+
+    private static long mix(long z) {
+        z += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -1,7 +1,7 @@
 package ui;
 
 import analytics.GameStats;
-import engine.AlgorithmType;
+import engine.MoveStats;
 import java.awt.*;
 import javax.swing.*;
 import model.Player;
@@ -12,11 +12,12 @@ public class EndCard extends JFrame {
     public EndCard(Player h,
                    Player c,
                    int size,
-                   AlgorithmType algo,
-                   boolean isColorBlindMode) {
+                   String algo,
+                   boolean isColorBlindMode,
+                   MoveStats cpuStats) {
 
         setTitle("Game Over");
-        setSize(420, 500);
+        setSize(420, 700);
         setLocationRelativeTo(null);
         setDefaultCloseOperation(EXIT_ON_CLOSE);
         setLayout(new BorderLayout());
@@ -54,10 +55,11 @@ public class EndCard extends JFrame {
         // ================= SCORE SECTION =================
         JTextArea scoreArea = new JTextArea(
                 String.format(
-                        "\nHuman Score : ₹%d\nCPU Score   : ₹%d\n\nHuman Moves : %d\nCPU Moves   : %d\n\nAlgorithm Used: %s\n",
+                        "\nHuman Score : ₹%d\nCPU Score   : ₹%d\n\nHuman Moves : %d\nCPU Moves   : %d\n\nAlgorithm Used: %s\n%s",
                         h.score, c.score,
                         h.moves, c.moves,
-                        algo
+                        algo,
+                        searchSummary(cpuStats)
                 )
         );
 
@@ -129,6 +131,17 @@ public class EndCard extends JFrame {
         setVisible(true);
     }
 
+    // ================= SEARCH SUMMARY =================
+    // CPU search totals for the game; empty when there are none
+    private static String searchSummary(MoveStats s) {
+        if (s == null || s.moves == 0) return "";
+        return String.format(
+                "\nCPU Search  : %d nodes\nQueue Peak  : %d\nCPU Time    : %.1f ms (max %.2f ms)\nAllocated   : %s\nBudget Hits : %d / %d moves\n",
+                s.nodesExpanded, s.queuePeak, s.millis(), s.maxNanos / 1e6,
+                s.bytesAllocated < 0 ? "n/a" : String.format("%.1f KB", s.bytesAllocated / 1024.0),
+                s.budgetHits, s.moves);
+    }
+
     // ================= STYLED BUTTON =================
     private JButton styledButton(String text) {
 
@@ -1,5 +1,6 @@
 package ui;
 
+import engine.MoveStats;
 import java.awt.*;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -11,20 +12,22 @@ import util.Config;
 public class GamePanel extends JPanel {
 
     private Maze maze;
-    private Player h, c;
+    private Player h;
+    private Player[] cpus;
     private GameUI gameUI;
     private int cell;
     private boolean isColorBlindMode;
 
     private Map<Point, Float> cashAnimations = new HashMap<>();
     private Map<Point, Float> wallBumps = new HashMap<>();
+    private boolean showStats = Config.SHOW_AI_STATS;
 
-    public GamePanel(Maze m, Player h, Player c, GameUI gameUI,
+    public GamePanel(Maze m, Player h, Player[] cpus, GameUI gameUI,
                      int size, boolean isColorBlindMode) {
 
         this.maze = m;
         this.h = h;
-        this.c = c;
+        this.cpus = cpus;
         this.gameUI = gameUI;
         this.isColorBlindMode = isColorBlindMode;
 
@@ -41,7 +44,7 @@ public class GamePanel extends JPanel {
 
         new Timer(16, e -> {
             h.smooth();
-            c.smooth();
+            for (Player c : cpus) c.smooth();
             updateAnimations();
             repaint();
         }).start();
@@ -79,6 +82,10 @@ public class GamePanel extends JPanel {
         wallBumps.put(new Point(x, y), 1.0f);
     }
 
+    public void toggleStats() {
+        showStats = !showStats;
+    }
+
     // ================= Rendering =================
     @Override
     protected void paintComponent(Graphics g) {
@@ -108,7 +115,7 @@ public class GamePanel extends JPanel {
                 g2.fillRoundRect(x, y, cell - 2, cell - 2, 14, 14);
 
                 // Wall
-                if (maze.grid[r][col] == CellType.WALL) {
+                if (maze.cellType(r, col) == CellType.WALL) {
 
                     Point p = new Point(r, col);
 
@@ -172,11 +179,13 @@ public class GamePanel extends JPanel {
                         Config.COLOR_HUMAN,
                 "H");
 
-        drawPlayer(g2, c,
-                isColorBlindMode ?
-                        Config.COLOR_CPU_COLORBLIND :
-                        Config.COLOR_CPU,
-                "C");
+        for (int i = 0; i < cpus.length; i++) {
+            drawPlayer(g2, cpus[i],
+                    isColorBlindMode ?
+                            Config.COLOR_CPU_COLORBLIND :
+                            Config.COLOR_CPU,
+                    cpus.length == 1 ? "C" : "C" + (i + 1));
+        }
     }
 
     private void drawPlayer(Graphics2D g2,
@@ -223,15 +232,26 @@ public class GamePanel extends JPanel {
 
         int gemsLeft = maze.getRemainingCashCount();
 
+        int cpuScore = 0;
+        for (Player c : cpus) cpuScore += c.score;
+
         g2.drawString(
                 String.format(
                         "Human ₹%d | CPU ₹%d | H Moves: %d | C Moves: %d | Gems Left: %d | Moves Left: %d",
-                        h.score, c.score,
-                        h.moves, c.moves,
+                        h.score, cpuScore,
+                        h.moves, cpus[0].moves,
                         gemsLeft, movesLeft
                 ),
                 10,
                 maze.size * cell + 35
         );
+
+        // Debug overlay: what the CPU's last move cost
+        if (showStats && gameUI != null) {
+            MoveStats s = gameUI.getLastCpuMoveStats();
+            g2.setColor(s.budgetHit() ? new Color(255, 180, 80) : new Color(150, 200, 255));
+            g2.setFont(new Font("Monospaced", Font.PLAIN, 12));
+            g2.drawString("CPU " + s, 10, maze.size * cell + 52);
+        }
     }
 }
\ No newline at end of file
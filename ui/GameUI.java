@@ -11,12 +11,16 @@ import util.Difficulty;
 public class GameUI extends JFrame {
 
     private Maze maze;
-    private Player human, cpu;
+    private Player human, cpu;      // cpu is cpus[0]
+    private Player[] cpus;
+    private int[][] cpuStarts;
     private AIEngine ai;
+    private SpeculativePlanner speculation;
+    private TeamPlanner team;       // only with more than one CPU
     private GamePanel panel;
 
     private int size;
-    private AlgorithmType algo;
+    private String algo;
     private Difficulty difficulty;
     private boolean isColorBlindMode;
 
@@ -25,7 +29,17 @@ public class GameUI extends JFrame {
 
     private JLabel movesLabel;
 
-    public GameUI(int size, AlgorithmType algo,
+    // Set while the CPU's SwingWorker runs; key presses and the Reset and
+    // Restart buttons are ignored until it is done so the maze is never
+    // changed under a running search
+    private boolean cpuThinking;
+
+    // Search cost of the CPU's last move and of the whole game, only
+    // touched on the EDT (the HUD reads lastCpuMove while painting)
+    private final MoveStats lastCpuMove = new MoveStats();
+    private final MoveStats cpuStats = new MoveStats();
+
+    public GameUI(int size, String algo,
                   Difficulty difficulty,
                   boolean isColorBlindMode) {
 
@@ -40,21 +54,26 @@ public class GameUI extends JFrame {
     }
 
     private void setMoveLimit() {
-        switch (difficulty) {
-            case EASY   -> movesRemaining = (int)(moveLimit * 1.5);
-            case MEDIUM -> movesRemaining = moveLimit;
-            case HARD   -> movesRemaining = (int)(moveLimit * 0.75);
-        }
+        movesRemaining = difficulty.getMoveLimit(moveLimit);
     }
 
     private void initGame() {
 
         maze = new Maze(size, difficulty);
         human = new Player(0, 0);
-        cpu = new Player(size - 1, size - 1);
+        cpuStarts = TeamPlanner.startPositions(maze,
+                Math.max(1, Math.min(Config.CPU_PLAYERS, TeamPlanner.MAX_PLAYERS)));
+        cpus = new Player[cpuStarts.length];
+        for (int i = 0; i < cpus.length; i++) {
+            cpus[i] = new Player(cpuStarts[i][0], cpuStarts[i][1]);
+        }
+        cpu = cpus[0];
         ai = new AIEngine(maze);
+        ai.setOpponent(human);
+        speculation = new SpeculativePlanner(maze, algo);
+        if (cpus.length > 1) team = new TeamPlanner(maze);
 
-        panel = new GamePanel(maze, human, cpu, this,
+        panel = new GamePanel(maze, human, cpus, this,
                               size, isColorBlindMode);
 
         JScrollPane scrollPane = new JScrollPane(panel);
@@ -71,6 +90,7 @@ public class GameUI extends JFrame {
         setVisible(true);
 
         setupKeyBindings();   // 🔥 Proper movement handling
+        speculate();
     }
 
     // ================= KEY BINDINGS (FIXED MOVEMENT) =================
@@ -89,6 +109,7 @@ public class GameUI extends JFrame {
         im.put(KeyStroke.getKeyStroke("S"), "moveDown");
         im.put(KeyStroke.getKeyStroke("A"), "moveLeft");
         im.put(KeyStroke.getKeyStroke("D"), "moveRight");
+        im.put(KeyStroke.getKeyStroke("F3"), "toggleStats");
 
         am.put("moveUp", new AbstractAction() {
             public void actionPerformed(java.awt.event.ActionEvent e) {
@@ -113,6 +134,12 @@ public class GameUI extends JFrame {
                 handleHumanMove(0, 1);
             }
         });
+
+        am.put("toggleStats", new AbstractAction() {
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                panel.toggleStats();
+            }
+        });
     }
 
     // ================= TOP BAR =================
@@ -185,26 +212,48 @@ public class GameUI extends JFrame {
     }
 
     private void resetPositions() {
+        if (cpuThinking) return;
         human.x = human.y = 0;
-        cpu.x = cpu.y = size - 1;
         human.rx = human.x;
         human.ry = human.y;
-        cpu.rx = cpu.x;
-        cpu.ry = cpu.y;
-        human.score = cpu.score = 0;
-        human.moves = cpu.moves = 0;
+        human.score = 0;
+        human.moves = 0;
+        for (int i = 0; i < cpus.length; i++) {
+            Player c = cpus[i];
+            c.x = cpuStarts[i][0];
+            c.y = cpuStarts[i][1];
+            c.rx = c.x;
+            c.ry = c.y;
+            c.score = 0;
+            c.moves = 0;
+        }
+        lastCpuMove.reset();
+        cpuStats.reset();
 
         maze.restoreState();
         setMoveLimit();
         updateMoveLabel();
         panel.repaint();
+        speculate();
+    }
+
+    // The human's think time goes to the single CPU's next reply
+    private void speculate() {
+        if (team == null) speculation.start(human, cpu, movesRemaining);
     }
 
     private void restartGame() {
+        if (cpuThinking) return;
+        speculation.shutdown();
+        ai.shutdown();
         dispose();
         new GameUI(size, algo, difficulty, isColorBlindMode);
     }
 
+    public MoveStats getLastCpuMoveStats() {
+        return lastCpuMove;
+    }
+
     private void updateMoveLabel() {
         movesLabel.setText("Moves Left: " + movesRemaining);
     }
@@ -212,7 +261,7 @@ public class GameUI extends JFrame {
     // ================= MOVEMENT LOGIC =================
     private void handleHumanMove(int dx, int dy) {
 
-        if (movesRemaining <= 0) return;
+        if (movesRemaining <= 0 || cpuThinking) return;
 
         int nx = human.x + dx;
         int ny = human.y + dy;
@@ -247,26 +296,44 @@ public class GameUI extends JFrame {
 
         if (movesRemaining > 0) {
 
+            cpuThinking = true;
             new SwingWorker<Void, Void>() {
+                // Filled here, published to the HUD's stats in done() on the EDT
+                private final MoveStats move = new MoveStats();
+
                 protected Void doInBackground() {
-                    ai.move(cpu, algo);
+                    if (team != null) {
+                        team.move(cpus);
+                        move.copyFrom(team.getLastMoveStats());
+                    } else if (speculation.commit(human, cpu)) {
+                        move.copyFrom(speculation.getCommittedStats());
+                    } else {
+                        ai.move(cpu, algo, movesRemaining);
+                        move.copyFrom(ai.getLastMoveStats());
+                    }
                     return null;
                 }
 
                 protected void done() {
 
-                    if (maze.hasCash(cpu.x, cpu.y)) {
-                        int value = maze.collect(cpu.x, cpu.y);
-                        cpu.score += value;
-                        panel.animateCash(cpu.x, cpu.y);
+                    cpuThinking = false;
+                    lastCpuMove.copyFrom(move);
+                    cpuStats.add(move);
+                    for (Player c : cpus) {
+                        if (maze.hasCash(c.x, c.y)) {
+                            int value = maze.collect(c.x, c.y);
+                            c.score += value;
+                            panel.animateCash(c.x, c.y);
+                        }
+                        c.moves++;
                     }
-
-                    cpu.moves++;
                     panel.repaint();
 
                     if (!maze.anyCashLeft() ||
                         movesRemaining <= 0) {
                         endGame();
+                    } else {
+                        speculate();
                     }
                 }
             }.execute();
@@ -277,8 +344,19 @@ public class GameUI extends JFrame {
     }
 
     private void endGame() {
+        speculation.shutdown();
+        ai.shutdown();
         SoundManager.play(Config.SOUND_WIN);
         dispose();
-        new EndCard(human, cpu, size, algo, isColorBlindMode);
+        new EndCard(human, cpuTeam(), size, algo, isColorBlindMode, cpuStats);
+    }
+
+    // The CPU side as one player: the team's summed score
+    private Player cpuTeam() {
+        if (cpus.length == 1) return cpu;
+        Player total = new Player(cpu.x, cpu.y);
+        for (Player c : cpus) total.score += c.score;
+        total.moves = cpu.moves;
+        return total;
     }
 }
\ No newline at end of file
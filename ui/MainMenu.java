@@ -1,6 +1,6 @@
 package ui;
 
-import engine.AlgorithmType;
+import engine.PathfinderRegistry;
 import javax.swing.*;
 import util.Difficulty;
 
@@ -23,7 +23,7 @@ public class MainMenu extends JFrame {
         // AI Algorithm
         JLabel algoLabel = new JLabel("AI Algorithm:");
         algoLabel.setBounds(20, 80, 100, 25);
-        JComboBox<AlgorithmType> algo = new JComboBox<>(AlgorithmType.values());
+        JComboBox<String> algo = new JComboBox<>(PathfinderRegistry.names().toArray(new String[0]));
         algo.setBounds(130, 80, 140, 25);
 
         // Difficulty
@@ -57,7 +57,7 @@ public class MainMenu extends JFrame {
 
         start.addActionListener(e -> {
             int selectedSize = (int) grid.getSelectedItem();
-            AlgorithmType selectedAlgo = (AlgorithmType) algo.getSelectedItem();
+            String selectedAlgo = (String) algo.getSelectedItem();
             Difficulty selectedDifficulty = (Difficulty) difficulty.getSelectedItem();
 
             dispose(); // Close menu
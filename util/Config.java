@@ -7,6 +7,30 @@ public class Config {
     public static final int MAX_CELL_SIZE = 40;
     public static final int MIN_WINDOW_SIZE = 800;
     public static final int BFS_MAX_DEPTH = 100;
+    public static final boolean AI_USE_DISTANCE_FIELD = true;
+    public static final boolean AI_REUSE_PATH = true;
+    public static final boolean AI_SPECULATE = true;
+    public static final boolean SHOW_AI_STATS = false;  // F3 toggles in game
+    public static final int DNC_LEAF_DISTANCE = 8;
+    public static final int DNC_FORK_DISTANCE = 64;
+    public static final int HPA_CLUSTER_SIZE = 10;
+    public static final int ROUTE_MAX_GEMS = 12;
+    public static final long ROUTE_TIME_BUDGET_MS = 50;
+    public static final long ADVERSARIAL_TIME_BUDGET_MS = 40;
+    public static final int ADVERSARIAL_MAX_DEPTH = 40;
+    public static final int ADVERSARIAL_TABLE_BITS = 18;  // transposition table of 2^n states
+    public static final boolean AI_REUSE_DECISIONS = true;  // game-tree CPUs replay their move in a state seen before
+    public static final long MCTS_TIME_BUDGET_MS = 60;
+    public static final int MCTS_THREADS = 0;           // 0 = one per core
+    public static final int MCTS_MAX_NODES = 1 << 16;   // per thread
+    public static final int MCTS_PLAYOUT_DEPTH = 40;
+    public static final double MCTS_EXPLORATION = 1.0;
+    public static final int CPU_PLAYERS = 1;            // more than one plays as a team
+    public static final int TEAM_CANDIDATE_GEMS = 16;   // gems each team CPU weighs per turn
+    public static final int GRADIENT_MIN_GEM_VALUE = 100;   // gems GRADIENT heads for
+    public static final int AUTO_EXPLORE_EVERY = 32;    // AUTO re-measures a rarely used search this often
+    public static final int GEM_BUCKET_SIZE = 16;        // cells per side of a GemIndex bucket
+    public static final int GEM_NEAREST_CANDIDATES = 8;  // gems selectBestCoin scores first to get a score to beat
     public static final String SOUND_COLLECT = "collect.wav";
     public static final String SOUND_MOVE = "move.wav";
     public static final String SOUND_WIN = "win.wav";
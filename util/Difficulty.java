@@ -1,11 +1,15 @@
 package util;
 
 public enum Difficulty {
-    EASY(10),
-    MEDIUM(20),
-    HARD(30);
+    EASY(10, 1.5),
+    MEDIUM(20, 1.0),
+    HARD(30, 0.75);
 
     private final int mazeSize;
-    Difficulty(int size){ this.mazeSize = size; }
+    private final double moveFactor;
+    Difficulty(int size, double moveFactor){ this.mazeSize = size; this.moveFactor = moveFactor; }
     public int getMazeSize(){ return mazeSize; }
+
+    // Moves a game at this difficulty allows, given the base limit
+    public int getMoveLimit(int baseLimit){ return (int)(baseLimit * moveFactor); }
 }
\ No newline at end of file